@@ -31,13 +31,17 @@ import com.chiguirongos.backend.configuration.security.JWT.JWTSecurityUtils;
 import com.chiguirongos.backend.dtos.requestsDTO.EditUserDetailsDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.RestartPasswordDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.LoginCredentialsDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.CacheStatsDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.UserDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.UserPurgeDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentUserException;
 import com.chiguirongos.backend.exceptions.runtime.UnauthorizedRoleException;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.utils.ModelsConstants;
 import com.chiguirongos.backend.repositories.UserRepository;
 import com.chiguirongos.backend.services.AdminService;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+import com.chiguirongos.backend.services.deletion.UserPurgeService;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
@@ -55,6 +59,10 @@ public class AdminController {
     private UserRepository userRepository;
     @Autowired
     private AdminService adminService;
+    @Autowired
+    private MonthWorksCache monthWorks;
+    @Autowired
+    private UserPurgeService userPurges;
     private Logger logger = LogManager.getLogger();
 
     /**
@@ -249,4 +257,33 @@ public class AdminController {
                 .ok()
                 .build();
     }
+
+    /**
+     * Endpoint to get the usage metrics of the monthly works cache
+     * 
+     * @param adminCookie ADM cookie for admins
+     * @return A ResponseEntity containing the cache hits, misses, evictions and
+     *         memory usage
+     */
+    @GetMapping("/admin/works-cache-stats")
+    public ResponseEntity<CacheStatsDTO> getWorksCacheStats(
+            @CookieValue(name = SecurityConstants.ADMIN_COOKIE_NAME) String adminCookie) {
+
+        return ResponseEntity.ok(monthWorks.getStats());
+    }
+
+    /**
+     * Endpoint to get the progress of the background purge of the deleted
+     * users and of the users whose role changed
+     * 
+     * @param adminCookie ADM cookie for admins
+     * @return A ResponseEntity containing the users waiting to be purged, the
+     *         step running and the rows already purged
+     */
+    @GetMapping("/admin/user-purges")
+    public ResponseEntity<List<UserPurgeDTO>> getUserPurges(
+            @CookieValue(name = SecurityConstants.ADMIN_COOKIE_NAME) String adminCookie) {
+
+        return ResponseEntity.ok(userPurges.getPendingPurges());
+    }
 }
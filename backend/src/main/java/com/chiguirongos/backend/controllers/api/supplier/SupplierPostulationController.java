@@ -7,11 +7,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.chiguirongos.backend.configuration.security.SecurityConstants;
 import com.chiguirongos.backend.configuration.security.JWT.JWTSecurityUtils;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.PostulationDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
 import com.chiguirongos.backend.models.users.UserEntity;
@@ -68,6 +70,25 @@ public class SupplierPostulationController {
         return ResponseEntity.ok("Postulation Accepted");
     }
 
+    /**
+     * Accepts a batch of volunteer postulations. The postulations of each work
+     * are accepted while the work has free slots, and the rest are rejected.
+     * 
+     * @param authCookie     JWT auth of the accepting supplier
+     * @param postulationIds IDs of the postulations to accept, in priority order
+     * @return A ResponseEntity containing the result of every postulation, in the
+     *         same order as the batch
+     */
+    @PostMapping("/api/supplier/accept-postulations")
+    public ResponseEntity<List<BatchItemResultDTO>> acceptPostulationsBatch(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestBody List<Long> postulationIds) {
+
+        String username = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity supplier = authService.retrieveUser(username);
+        return ResponseEntity.ok(supplierPostulationService.acceptUserPostulationsBatch(supplier, postulationIds));
+    }
+
     /**
      * Retrieves all the pending postulations from a work.
      * 
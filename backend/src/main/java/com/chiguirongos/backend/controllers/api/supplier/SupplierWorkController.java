@@ -1,14 +1,19 @@
 package com.chiguirongos.backend.controllers.api.supplier;
 
+import java.time.YearMonth;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -17,9 +22,11 @@ import com.chiguirongos.backend.configuration.security.JWT.JWTSecurityUtils;
 import com.chiguirongos.backend.dtos.requestsDTO.CreateWorkDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.DeleteWorkDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.EditWorkDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.services.AuthorizationService;
+import com.chiguirongos.backend.services.cache.ViewVersions;
 import com.chiguirongos.backend.services.supplier.SupplierWorkService;
 
 import jakarta.validation.Valid;
@@ -34,6 +41,8 @@ public class SupplierWorkController {
     private SupplierWorkService supplierWorkService;
     @Autowired
     private AuthorizationService authService;
+    @Autowired
+    private ViewVersions viewVersions;
 
     /**
      * Endpoint for creating a new work.
@@ -53,6 +62,44 @@ public class SupplierWorkController {
         return ResponseEntity.ok("Work correctly created.");
     }
 
+    /**
+     * Endpoint for creating many works at once from a JSON array. Every work
+     * is validated on its own, so invalid works don't stop the others.
+     * 
+     * @param authCookie Jwt authorization cookie of the user
+     * @param works      Works to create
+     * @return A ResponseEntity containing the result of every work, in the same
+     *         order as the array
+     */
+    @PostMapping(value = "/api/supplier/work-import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchItemResultDTO>> importWorks(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestBody List<CreateWorkDTO> works) {
+
+        String supplierUserName = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity supplier = authService.retrieveUser(supplierUserName);
+        return ResponseEntity.ok(supplierWorkService.importSupplierWorks(supplier, works));
+    }
+
+    /**
+     * Endpoint for creating many works at once from a CSV file. Every row is
+     * validated on its own, so invalid rows don't stop the others.
+     * 
+     * @param authCookie Jwt authorization cookie of the user
+     * @param csv        Content of the CSV file
+     * @return A ResponseEntity containing the result of every row, in the same
+     *         order as the file
+     */
+    @PostMapping(value = "/api/supplier/work-import", consumes = "text/csv")
+    public ResponseEntity<List<BatchItemResultDTO>> importWorksCsv(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestBody String csv) {
+
+        String supplierUserName = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity supplier = authService.retrieveUser(supplierUserName);
+        return ResponseEntity.ok(supplierWorkService.importSupplierWorksCsv(supplier, csv));
+    }
+
     /**
      * Endpoint for updating an existing work.
      *
@@ -74,22 +121,30 @@ public class SupplierWorkController {
     /**
      * Endpoint to retrieve all supplier works in certain month and year
      * 
-     * @param authCookie Jwt authorization cookie of the user
-     * @param month      Month to retrieve works from
-     * @param year       Year to retrieve works from
+     * @param authCookie  Jwt authorization cookie of the user
+     * @param ifNoneMatch ETag of the version of the works the client already has
+     * @param month       Month to retrieve works from
+     * @param year        Year to retrieve works from
      * @return A list of works where the month and year are between the start date
-     *         and end date of the work
+     *         and end date of the work, or NOT MODIFIED if they didn't change
      */
     @GetMapping("/api/supplier/works")
     public ResponseEntity<List<WorkDTO>> getSupplierWorksForMonth(
             @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @RequestParam Integer month, @RequestParam Integer year) {
 
+        // Deleted users never get a cached response
         String supplierUserName = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
         UserEntity supplier = authService.retrieveUser(supplierUserName);
+
+        String etag = viewVersions.userMonthTag(supplierUserName, YearMonth.of(year, month));
+        if (ViewVersions.matches(ifNoneMatch, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
         List<WorkDTO> works = supplierWorkService.getSupplierWorksInMonthYear(supplier, month,
                 year);
-        return ResponseEntity.ok(works);
+        return ResponseEntity.ok().eTag(etag).body(works);
     }
 
     /**
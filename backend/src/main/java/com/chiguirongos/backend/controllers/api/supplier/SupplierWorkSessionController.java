@@ -12,7 +12,9 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.chiguirongos.backend.configuration.security.SecurityConstants;
 import com.chiguirongos.backend.configuration.security.JWT.JWTSecurityUtils;
+import com.chiguirongos.backend.dtos.requestsDTO.SessionsStatusDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.WorkBlockDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkSessionDTO;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.utils.WorkSessionStatusEnum;
@@ -53,6 +55,26 @@ public class SupplierWorkSessionController {
         return ResponseEntity.ok("Status changed");
     }
 
+    /**
+     * Changes the status of a batch of work sessions, given by their ids or as
+     * a whole work block
+     * 
+     * @param authCookie JWT auth of the supplier
+     * @param request    DTO containing the session ids or the work block, and
+     *                   the new status of the sessions
+     * @return A ResponseEntity containing the result of every session, in the
+     *         same order as the batch
+     */
+    @PostMapping("/api/supplier/sessions-status")
+    public ResponseEntity<List<BatchItemResultDTO>> changeSessionsStatusBatch(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestBody @Valid SessionsStatusDTO request) {
+
+        String supplierUserName = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity supplier = authService.retrieveUser(supplierUserName);
+        return ResponseEntity.ok(workSessionService.changeSessionsStatusBatch(supplier, request));
+    }
+
     /**
      * Gets the work sessions from a supplier work in a date and hour block.
      * 
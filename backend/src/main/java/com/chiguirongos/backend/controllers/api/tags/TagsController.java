@@ -27,9 +27,7 @@ public class TagsController {
     @GetMapping("/api/all/tags")
     public ResponseEntity<List<String>> getAllTags() {
         try {
-            return ResponseEntity.ok()
-                    .body(tagsService.getTags().stream()
-                            .map((t) -> t.getName()).toList());
+            return ResponseEntity.ok().body(tagsService.getTags());
         } catch (Exception e) {
             logger.error(e);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -15,6 +15,7 @@ import com.chiguirongos.backend.configuration.security.SecurityConstants;
 import com.chiguirongos.backend.configuration.security.JWT.JWTSecurityUtils;
 import com.chiguirongos.backend.dtos.requestsDTO.EditPostulationDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.PostulationDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
 import com.chiguirongos.backend.models.users.UserEntity;
@@ -88,6 +89,25 @@ public class VolunteerPostulationsController {
         return ResponseEntity.ok("postulation successfully created");
     }
 
+    /**
+     * Tries to create a batch of volunteer postulations. Valid postulations are
+     * created even if others in the batch fail.
+     * 
+     * @param authCookie Jwt authorization cookie of the user
+     * @param batch      Details of every new postulation
+     * @return A ResponseEntity containing the result of every postulation, in the
+     *         same order as the batch
+     */
+    @PostMapping("/api/user/postulate-batch")
+    public ResponseEntity<List<BatchItemResultDTO>> postulateUserBatch(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestBody @Valid List<CreatePostulationDTO> batch) {
+
+        String username = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity volunteer = authService.retrieveUser(username);
+        return ResponseEntity.ok(userPostulationService.postulateUserBatch(volunteer, batch));
+    }
+
     /**
      * Cancels a volunteer postulation
      * 
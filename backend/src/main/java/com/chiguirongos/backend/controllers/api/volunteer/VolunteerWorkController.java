@@ -1,13 +1,17 @@
 package com.chiguirongos.backend.controllers.api.volunteer;
 
+import java.time.YearMonth;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -15,9 +19,11 @@ import com.chiguirongos.backend.configuration.security.SecurityConstants;
 import com.chiguirongos.backend.configuration.security.JWT.JWTSecurityUtils;
 import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.WorkPageDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkSessionDTO;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.services.AuthorizationService;
+import com.chiguirongos.backend.services.cache.ViewVersions;
 import com.chiguirongos.backend.services.volunteer.VolunteerWorkService;
 
 import jakarta.validation.Valid;
@@ -33,6 +39,8 @@ public class VolunteerWorkController {
     private VolunteerWorkService volWorkService;
     @Autowired
     private AuthorizationService authService;
+    @Autowired
+    private ViewVersions viewVersions;
 
     /**
      * Endpoint for retrieving all available works in a certain month and year
@@ -60,28 +68,110 @@ public class VolunteerWorkController {
         return ResponseEntity.ok(works);
     }
 
+    /**
+     * Endpoint for retrieving a page of the available works in a certain month
+     * and year that have hour blocks matching a list of user preferred blocks.
+     * If no work matches, the pages contain all the available works.
+     *
+     * @param authCookie JWT authorization cookie of the user
+     * @param prefBlocks Volunteer preferred work blocks
+     * @param month      Month to get matching works from
+     * @param year       Year to get matching works from
+     * @param cursor     Cursor returned with the previous page, none for the
+     *                   first page
+     * @param pageSize   Maximum number of works in the page, none for the default
+     *                   page size
+     * @return A ResponseEntity containing a page of works and the cursor of the
+     *         next page
+     */
+    @PostMapping("/api/user/works-by-page")
+    public ResponseEntity<WorkPageDTO> getWorksPageMatchingHourBlocks(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestBody @Valid List<UserHourBlockDTO> prefBlocks,
+            @RequestParam Integer month,
+            @RequestParam Integer year,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize) {
+
+        String username = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity volunteer = authService.retrieveUser(username);
+
+        WorkPageDTO page = volWorkService.getVolunteerPreferredWorksPage(volunteer, prefBlocks,
+                month,
+                year,
+                cursor,
+                pageSize);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Endpoint for retrieving the best available works in a certain month and
+     * year for the volunteer, ranked by its preferred tags and hour blocks.
+     *
+     * @param authCookie  JWT authorization cookie of the user
+     * @param ifNoneMatch ETag of the version of the works the client already has
+     * @param month       Month to get works from
+     * @param year        Year to get works from
+     * @param limit       Maximum number of works to retrieve, none for the
+     *                    default page size
+     * @return A ResponseEntity containing a list of works sorted from best to
+     *         worst, or NOT MODIFIED if they didn't change
+     */
+    @GetMapping("/api/user/works-ranked")
+    public ResponseEntity<List<WorkDTO>> getRankedWorks(
+            @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam Integer month,
+            @RequestParam Integer year,
+            @RequestParam(required = false) Integer limit) {
+
+        // Deleted users never get a cached response
+        String username = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
+        UserEntity volunteer = authService.retrieveUser(username);
+
+        String etag = viewVersions.userMonthTag(username, YearMonth.of(year, month));
+        if (ViewVersions.matches(ifNoneMatch, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(volWorkService.getVolunteerRankedWorks(volunteer, month, year, limit));
+    }
+
     /**
      * Gets the work sessions status of a volunteer in a specific month and year.
      * 
-     * @param authCookie JWT authorization cookie of the user
-     * @param month      Month to get sessions from
-     * @param year       Year to get sessions from
+     * @param authCookie  JWT authorization cookie of the user
+     * @param ifNoneMatch ETag of the version of the sessions the client already
+     *                    has
+     * @param month       Month to get sessions from
+     * @param year        Year to get sessions from
      * @return List containing all the work sessions statuses of the volunteer in
-     *         the month and year specified
+     *         the month and year specified, or NOT MODIFIED if they didn't change
      */
     @GetMapping("/api/user/work-sessions")
     public ResponseEntity<List<WorkSessionDTO>> getVolunteerWorkSessions(
             @CookieValue(name = SecurityConstants.AUTH_COOKIE_NAME) String authCookie,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @RequestParam Integer month,
             @RequestParam Integer year) {
 
+        // Sessions also change when their works are edited, which bumps the month
         String username = JWTSecurityUtils.getAuthUserFromJWT(authCookie);
         UserEntity volunteer = authService.retrieveUser(username);
-        return ResponseEntity.ok(volWorkService.getVolunteerWorkSessions(volunteer, month, year));
+
+        String etag = viewVersions.userMonthTag(username, YearMonth.of(year, month));
+        if (ViewVersions.matches(ifNoneMatch, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(volWorkService.getVolunteerWorkSessions(volunteer, month, year));
     }
 
     /**
-     * Retrieves the work associated to a work session
+     * Retrieves the work associated to a work session. The work can be edited by
+     * its supplier without any change of the volunteer, so it isn't tagged.
      * 
      * @param authCookie JWT authorization cookie of the user
      * @param sessionId  Id of the session to retrieve its work from
@@ -0,0 +1,54 @@
+package com.chiguirongos.backend.dtos.requestsDTO;
+
+import java.util.List;
+
+import com.chiguirongos.backend.models.utils.WorkSessionStatusEnum;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO containing the sessions to change the status of, either as a list of
+ * session ids or as a whole work block, and their new status
+ */
+public class SessionsStatusDTO {
+
+    @NotNull
+    private WorkSessionStatusEnum newStatus;
+
+    private List<Long> sessionIds;
+
+    private WorkBlockDTO block;
+
+    public SessionsStatusDTO() {
+    }
+
+    public SessionsStatusDTO(@NotNull WorkSessionStatusEnum newStatus, List<Long> sessionIds, WorkBlockDTO block) {
+        this.newStatus = newStatus;
+        this.sessionIds = sessionIds;
+        this.block = block;
+    }
+
+    public WorkSessionStatusEnum getNewStatus() {
+        return newStatus;
+    }
+
+    public void setNewStatus(WorkSessionStatusEnum newStatus) {
+        this.newStatus = newStatus;
+    }
+
+    public List<Long> getSessionIds() {
+        return sessionIds;
+    }
+
+    public void setSessionIds(List<Long> sessionIds) {
+        this.sessionIds = sessionIds;
+    }
+
+    public WorkBlockDTO getBlock() {
+        return block;
+    }
+
+    public void setBlock(WorkBlockDTO block) {
+        this.block = block;
+    }
+}
@@ -0,0 +1,115 @@
+package com.chiguirongos.backend.dtos.responsesDTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO with the result of a single item of a batch operation.
+ */
+@JsonInclude(Include.NON_NULL)
+public class BatchItemResultDTO {
+
+    // Position of the item in the batch
+    @NotNull
+    private Integer index;
+
+    @NotNull
+    private Boolean success;
+
+    // Id of the entity created or changed by the item, null if it failed
+    private Long id = null;
+
+    // Resulting status of the entity, null if the operation has a single outcome
+    private String status = null;
+
+    // Reason of the failure, null if the item succeeded
+    private String message = null;
+
+    public BatchItemResultDTO() {
+    }
+
+    public BatchItemResultDTO(@NotNull Integer index, @NotNull Boolean success, Long id, String status,
+            String message) {
+        this.index = index;
+        this.success = success;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * Builds the result of an item that succeeded
+     * 
+     * @param index Position of the item in the batch
+     * @param id    Id of the entity created or changed by the item
+     * @return Result of the item
+     */
+    public static BatchItemResultDTO succeeded(Integer index, Long id) {
+        return new BatchItemResultDTO(index, true, id, null, null);
+    }
+
+    /**
+     * Builds the result of an item that succeeded with a specific outcome
+     * 
+     * @param index  Position of the item in the batch
+     * @param id     Id of the entity created or changed by the item
+     * @param status Resulting status of the entity
+     * @return Result of the item
+     */
+    public static BatchItemResultDTO succeeded(Integer index, Long id, String status) {
+        return new BatchItemResultDTO(index, true, id, status, null);
+    }
+
+    /**
+     * Builds the result of an item that failed
+     * 
+     * @param index   Position of the item in the batch
+     * @param message Reason of the failure
+     * @return Result of the item
+     */
+    public static BatchItemResultDTO failed(Integer index, String message) {
+        return new BatchItemResultDTO(index, false, null, null, message);
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,103 @@
+package com.chiguirongos.backend.dtos.responsesDTO;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO with the usage metrics of a cache.
+ */
+public class CacheStatsDTO {
+
+    @NotNull
+    private Long hits;
+
+    @NotNull
+    private Long misses;
+
+    // Entries removed to stay inside the cache limits
+    @NotNull
+    private Long evictions;
+
+    // Entries removed because their data changed
+    @NotNull
+    private Long invalidations;
+
+    @NotNull
+    private Long entries;
+
+    // Estimated memory used by the entries, in bytes
+    @NotNull
+    private Long usedBytes;
+
+    @NotNull
+    private Long maxBytes;
+
+    public CacheStatsDTO() {
+    }
+
+    public CacheStatsDTO(@NotNull Long hits, @NotNull Long misses, @NotNull Long evictions,
+            @NotNull Long invalidations, @NotNull Long entries, @NotNull Long usedBytes, @NotNull Long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.usedBytes = usedBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    public Long getHits() {
+        return hits;
+    }
+
+    public void setHits(Long hits) {
+        this.hits = hits;
+    }
+
+    public Long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(Long misses) {
+        this.misses = misses;
+    }
+
+    public Long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(Long evictions) {
+        this.evictions = evictions;
+    }
+
+    public Long getInvalidations() {
+        return invalidations;
+    }
+
+    public void setInvalidations(Long invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    public Long getEntries() {
+        return entries;
+    }
+
+    public void setEntries(Long entries) {
+        this.entries = entries;
+    }
+
+    public Long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(Long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public Long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(Long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
@@ -0,0 +1,78 @@
+package com.chiguirongos.backend.dtos.responsesDTO;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO with the progress of the purge of an user data.
+ */
+public class UserPurgeDTO {
+
+    @NotNull
+    private String username;
+
+    @NotNull
+    private String role;
+
+    // Whether the whole user is purged or only the data of its previous role
+    @NotNull
+    private Boolean deleted;
+
+    @NotNull
+    private String stage;
+
+    // Rows deleted since this server started purging the user
+    @NotNull
+    private Long purgedRows;
+
+    public UserPurgeDTO() {
+    }
+
+    public UserPurgeDTO(@NotNull String username, @NotNull String role, @NotNull Boolean deleted,
+            @NotNull String stage, @NotNull Long purgedRows) {
+        this.username = username;
+        this.role = role;
+        this.deleted = deleted;
+        this.stage = stage;
+        this.purgedRows = purgedRows;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public Long getPurgedRows() {
+        return purgedRows;
+    }
+
+    public void setPurgedRows(Long purgedRows) {
+        this.purgedRows = purgedRows;
+    }
+}
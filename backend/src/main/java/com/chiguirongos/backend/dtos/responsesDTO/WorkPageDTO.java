@@ -0,0 +1,59 @@
+package com.chiguirongos.backend.dtos.responsesDTO;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO with a page of the volunteer works feed and the cursor
+ * to request the next one.
+ */
+@JsonInclude(Include.NON_NULL)
+public class WorkPageDTO {
+
+    @NotNull
+    private List<WorkDTO> works;
+
+    // Cursor of the next page, null if this is the last one
+    private String nextCursor = null;
+
+    // True if the works match the volunteer preferences, false if the feed fell back to all the works
+    @NotNull
+    private Boolean preferred;
+
+    public WorkPageDTO() {
+    }
+
+    public WorkPageDTO(@NotNull List<WorkDTO> works, String nextCursor, @NotNull Boolean preferred) {
+        this.works = works;
+        this.nextCursor = nextCursor;
+        this.preferred = preferred;
+    }
+
+    public List<WorkDTO> getWorks() {
+        return works;
+    }
+
+    public void setWorks(List<WorkDTO> works) {
+        this.works = works;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getPreferred() {
+        return preferred;
+    }
+
+    public void setPreferred(Boolean preferred) {
+        this.preferred = preferred;
+    }
+}
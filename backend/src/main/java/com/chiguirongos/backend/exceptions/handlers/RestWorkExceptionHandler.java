@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.chiguirongos.backend.exceptions.runtime.NonExistentWorkException;
+import com.chiguirongos.backend.exceptions.runtime.WorkFullException;
 
 @ControllerAdvice
 public class RestWorkExceptionHandler {
@@ -19,4 +20,10 @@ public class RestWorkExceptionHandler {
         logger.error(ex);
         return new ResponseEntity<String>("Non existent work", HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(value = { WorkFullException.class })
+    protected ResponseEntity<String> handleWorkFull(RuntimeException ex) {
+        logger.error(ex);
+        return new ResponseEntity<String>("The work has no free slots left", HttpStatus.BAD_REQUEST);
+    }
 }
@@ -0,0 +1,5 @@
+package com.chiguirongos.backend.exceptions.runtime;
+
+public class WorkFullException extends RuntimeException {
+    public WorkFullException() {}
+}
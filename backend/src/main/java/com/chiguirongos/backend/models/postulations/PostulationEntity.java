@@ -12,14 +12,17 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 
 /**
  * Entity class representing a volunteer postulation to a work
  */
 @Entity
+@Table(indexes = { @Index(name = "postulation_volunteer_status_idx", columnList = "user_id, status") })
 public class PostulationEntity {
 
     @Id
@@ -12,15 +12,18 @@ import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
 
 /**
- * Entity class representing a tag in the application.
+ * Entity class representing a tag in the application. Tags are only created
+ * by the TagRegistry, which assigns their ids.
  */
 @Entity
 public class TagEntity {    
+    public static final int MAX_NAME_LENGTH = 16;
+
     @Id
     @GeneratedValue
     private Long tagId;                 // ID of the tag
 
-    @Column(unique = true, length = 16) 
+    @Column(unique = true, length = MAX_NAME_LENGTH) 
     private String name;                // Name of the tag
 
     @ManyToMany(mappedBy = "workTags")
@@ -31,10 +34,6 @@ public class TagEntity {
 
     protected TagEntity() {}
 
-    public TagEntity(String name) {
-        this.name = name;
-    }
-
     public Long getTagId() {
         return tagId;
     }
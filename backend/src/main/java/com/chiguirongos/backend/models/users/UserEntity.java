@@ -6,9 +6,13 @@ import java.util.Set;
 
 import com.chiguirongos.backend.models.postulations.PostulationEntity;
 import com.chiguirongos.backend.models.tags.TagEntity;
+import com.chiguirongos.backend.models.utils.WeekHourMask;
+
+import org.hibernate.annotations.ColumnDefault;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -62,9 +66,28 @@ public class UserEntity {
     @JoinColumn(name = "user_id", nullable = false)
     private Set<UserHourBlocks> userHourBlocks;     // User preferred hour blocks
 
+    @Embedded
+    private WeekHourMask hourMask;      // Weekly preferred hour blocks, kept in sync with userHourBlocks
+
     @NotNull
     private Boolean suspended;
 
+    @NotNull
+    @ColumnDefault("false")
+    private Boolean deleted;            // Deleted user whose data is still being purged
+
+    @NotNull
+    @ColumnDefault("false")
+    private Boolean purgePending;       // Data of a previous role or of a deleted user is waiting to be purged
+
+    @NotNull
+    @ColumnDefault("false")
+    private Boolean purgeSupplierData;  // Works of a previous supplier role are waiting to be purged
+
+    @NotNull
+    @ColumnDefault("false")
+    private Boolean purgeVolunteerData; // Work instances and postulations of a previous volunteer role are waiting to be purged
+
     @OneToMany(mappedBy = "volunteer", cascade = CascadeType.REMOVE, orphanRemoval = true, fetch = FetchType.EAGER)
     private Set<PostulationEntity> userPostulations;    // Postulations made by the user
 
@@ -82,7 +105,12 @@ public class UserEntity {
         this.role = role;
         this.userTags = new HashSet<TagEntity>();
         this.userHourBlocks = new HashSet<UserHourBlocks>();
+        this.hourMask = new WeekHourMask();
         this.suspended = false;
+        this.deleted = false;
+        this.purgePending = false;
+        this.purgeSupplierData = false;
+        this.purgeVolunteerData = false;
         this.userPostulations = new HashSet<PostulationEntity>();
     }
 
@@ -113,8 +141,8 @@ public class UserEntity {
 
     // #region PREFERENCES
     /**
-     * Adds a tag to the user's preferences
-     * and also to the tag's users.
+     * Adds a tag to the user's preferences. The tag's users are left
+     * untouched, so they are never loaded just to tag an user.
      * 
      * @param tag Tag to add
      */
@@ -122,16 +150,12 @@ public class UserEntity {
         if (userTags == null)
             userTags = new HashSet<>();
 
-        if (tag.taggedUser == null)
-            tag.taggedUser = new HashSet<>();
-
-        tag.taggedUser.add(this);
         userTags.add(tag);
     }
 
     /**
-     * Removes a tag from the user's preferences
-     * and also from the tag's users.
+     * Removes a tag from the user's preferences. The tag's users are left
+     * untouched, so they are never loaded just to untag an user.
      * 
      * @param tag Tag to remove
      */
@@ -139,10 +163,6 @@ public class UserEntity {
         if (userTags == null)
             return;
 
-        if (tag.taggedUser == null)
-            return;
-
-        tag.taggedUser.removeIf(u -> u.getUserId().equals(userId));
         userTags.removeIf(t -> t.getTagId().equals(tag.getTagId()));
     }
 
@@ -169,6 +189,28 @@ public class UserEntity {
 
         userHourBlocks.remove(block);
     }
+
+    /**
+     * Recomputes the weekly hour mask from the user preferred hour blocks.
+     * Must be called every time the preferred blocks change.
+     */
+    public void refreshHourMask() {
+        hourMask = computeHourMask();
+    }
+
+    /**
+     * Computes the weekly hour mask from the hour blocks, without storing it
+     * 
+     * @return Weekly hour mask of the hour blocks
+     */
+    private WeekHourMask computeHourMask() {
+        WeekHourMask mask = new WeekHourMask();
+        if (userHourBlocks != null)
+            for (UserHourBlocks block : userHourBlocks)
+                mask.set(block.getWeekDay(), block.getHourBlock().getHour());
+
+        return mask;
+    }
     // #endregion
 
     // #region GETTERS SETTERS
@@ -240,6 +282,20 @@ public class UserEntity {
         this.userHourBlocks = userHourBlocks;
     }
 
+    /**
+     * Gets the weekly hour mask. Rows stored before the mask existed get it
+     * computed on the fly, leaving the entity untouched until the backfill
+     * stores it, so reading it never makes the entity dirty.
+     * 
+     * @return Weekly hour mask of the hour blocks
+     */
+    public WeekHourMask getHourMask() {
+        if (hourMask == null)
+            return computeHourMask();
+
+        return hourMask;
+    }
+
     public void setSuspended(Boolean suspended) {
         this.suspended = suspended;
     }
@@ -248,6 +304,38 @@ public class UserEntity {
         return suspended;
     }
 
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public Boolean getPurgePending() {
+        return purgePending;
+    }
+
+    public void setPurgePending(Boolean purgePending) {
+        this.purgePending = purgePending;
+    }
+
+    public Boolean getPurgeSupplierData() {
+        return purgeSupplierData;
+    }
+
+    public void setPurgeSupplierData(Boolean purgeSupplierData) {
+        this.purgeSupplierData = purgeSupplierData;
+    }
+
+    public Boolean getPurgeVolunteerData() {
+        return purgeVolunteerData;
+    }
+
+    public void setPurgeVolunteerData(Boolean purgeVolunteerData) {
+        this.purgeVolunteerData = purgeVolunteerData;
+    }
+
     public Set<PostulationEntity> getUserPostulations() {
         return userPostulations;
     }
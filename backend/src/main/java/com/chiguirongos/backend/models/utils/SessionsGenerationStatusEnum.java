@@ -0,0 +1,22 @@
+package com.chiguirongos.backend.models.utils;
+
+/**
+ * Enumerator used to represent the status of the
+ * generation of the sessions of a work instance
+ */
+public enum SessionsGenerationStatusEnum {
+    PENDING("PENDING"),
+    GENERATED("GENERATED"),
+    VIRTUAL("VIRTUAL"),
+    FAILED("FAILED");   // Only left by older versions, these instances are moved to VIRTUAL
+
+    private final String value;
+
+    SessionsGenerationStatusEnum(final String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,123 @@
+package com.chiguirongos.backend.models.utils;
+
+import jakarta.persistence.Embeddable;
+
+/**
+ * Compact weekly availability of a work or a volunteer. Every hour of the
+ * week (7 days x 24 hours) is a bit, stored in three 64 bit words so
+ * that two schedules can be matched with three AND operations, both in
+ * memory and in SQL.
+ * 
+ * The bit of an hour block is weekDay * 24 + hour, where weekDay follows
+ * WeekDayEnum (0 is sunday).
+ */
+@Embeddable
+public class WeekHourMask {
+
+    public static final int HOURS_PER_DAY = 24;
+    public static final int DAYS_PER_WEEK = 7;
+
+    private Long maskWord0;     // Bits of sunday, monday and the first 16 hours of tuesday
+    private Long maskWord1;     // Bits of the last 8 hours of tuesday up to the first 8 hours of friday
+    private Long maskWord2;     // Bits of the last 16 hours of friday and saturday
+
+    public WeekHourMask() {
+        this.maskWord0 = 0l;
+        this.maskWord1 = 0l;
+        this.maskWord2 = 0l;
+    }
+
+    public WeekHourMask(Long maskWord0, Long maskWord1, Long maskWord2) {
+        this.maskWord0 = maskWord0;
+        this.maskWord1 = maskWord1;
+        this.maskWord2 = maskWord2;
+    }
+
+    /**
+     * Marks an hour block of the week as taken. Blocks outside the week
+     * are ignored.
+     * 
+     * @param weekDay Week day of the block, from 0 to 6
+     * @param hour    Hour of the block, from 0 to 23
+     */
+    public void set(Integer weekDay, Integer hour) {
+        if (weekDay < 0 || weekDay >= DAYS_PER_WEEK || hour < 0 || hour >= HOURS_PER_DAY)
+            return;
+
+        int bit = weekDay * HOURS_PER_DAY + hour;
+        long value = 1l << (bit % Long.SIZE);
+        switch (bit / Long.SIZE) {
+            case 0:
+                maskWord0 |= value;
+                break;
+            case 1:
+                maskWord1 |= value;
+                break;
+            default:
+                maskWord2 |= value;
+                break;
+        }
+    }
+
+    /**
+     * Checks if an hour block of the week is taken
+     * 
+     * @param weekDay Week day of the block, from 0 to 6
+     * @param hour    Hour of the block, from 0 to 23
+     * @return True if the block is taken
+     */
+    public boolean contains(Integer weekDay, Integer hour) {
+        WeekHourMask block = new WeekHourMask();
+        block.set(weekDay, hour);
+        return intersects(block);
+    }
+
+    /**
+     * Checks if two schedules share at least an hour block
+     * 
+     * @param other Schedule to match
+     * @return True if both schedules have an hour block in common
+     */
+    public boolean intersects(WeekHourMask other) {
+        return (maskWord0 & other.maskWord0) != 0
+                || (maskWord1 & other.maskWord1) != 0
+                || (maskWord2 & other.maskWord2) != 0;
+    }
+
+    /**
+     * Counts the hour blocks shared by two schedules
+     * 
+     * @param other Schedule to match
+     * @return Number of hour blocks in common
+     */
+    public int overlap(WeekHourMask other) {
+        return Long.bitCount(maskWord0 & other.maskWord0)
+                + Long.bitCount(maskWord1 & other.maskWord1)
+                + Long.bitCount(maskWord2 & other.maskWord2);
+    }
+
+    /**
+     * Counts the hour blocks of the schedule
+     * 
+     * @return Number of hour blocks taken
+     */
+    public int size() {
+        return Long.bitCount(maskWord0) + Long.bitCount(maskWord1) + Long.bitCount(maskWord2);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public Long getMaskWord0() {
+        return maskWord0;
+    }
+
+    public Long getMaskWord1() {
+        return maskWord1;
+    }
+
+    public Long getMaskWord2() {
+        return maskWord2;
+    }
+}
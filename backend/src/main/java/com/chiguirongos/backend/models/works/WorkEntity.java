@@ -7,8 +7,14 @@ import java.util.Set;
 import com.chiguirongos.backend.models.postulations.PostulationEntity;
 import com.chiguirongos.backend.models.tags.TagEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.utils.WeekHourMask;
+
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -16,21 +22,34 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.persistence.JoinColumn;
 
 /**
  * Represents a work entity that is stored in a relational table.
  * Each work has a generated Long value as its unique identifier.
+ * Updates only write the modified columns, so the counters maintained
+ * with bulk queries are never overwritten by a stale entity.
  */
 @Entity
+@DynamicUpdate
+@NamedEntityGraph(name = WorkEntity.CALENDAR_GRAPH, attributeNodes = {
+        @NamedAttributeNode("workHourBlocks"),
+        @NamedAttributeNode("workTags"),
+        @NamedAttributeNode("supplierId") })
 @Table(uniqueConstraints = { @UniqueConstraint(columnNames = { "supplierId", "name" }) })
 public class WorkEntity {
+    // Fetch plan loading everything needed to show a work in a calendar view
+    public static final String CALENDAR_GRAPH = "WorkEntity.calendar";
+
     @Id
     @GeneratedValue
     private Long workId;                        // Work id
@@ -58,6 +77,25 @@ public class WorkEntity {
     @Positive
     private Long volunteersNeeded;
 
+    @NotNull
+    @PositiveOrZero
+    @ColumnDefault("0")
+    private Long filledSlots;                   // Number of work instances created from accepted postulations
+
+    // Number of postulations of the work in every status, updated along every status change
+    @NotNull
+    @PositiveOrZero
+    @ColumnDefault("0")
+    private Long pendingPostulations;
+    @NotNull
+    @PositiveOrZero
+    @ColumnDefault("0")
+    private Long acceptedPostulations;
+    @NotNull
+    @PositiveOrZero
+    @ColumnDefault("0")
+    private Long rejectedPostulations;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "Work_Tags", joinColumns = { @JoinColumn(name = "workId") }, inverseJoinColumns = {
             @JoinColumn(name = "tagId") })
@@ -67,6 +105,9 @@ public class WorkEntity {
     @JoinColumn(name = "work_id", nullable = false)
     private Set<WorkHourBlocks> workHourBlocks;
 
+    @Embedded
+    private WeekHourMask hourMask;              // Weekly hour blocks of the work, kept in sync with workHourBlocks
+
     @OneToMany(mappedBy = "work", cascade = CascadeType.REMOVE, orphanRemoval = true)
     private Set<PostulationEntity> workPostulations;
 
@@ -84,15 +125,21 @@ public class WorkEntity {
         this.startDate = startDate;
         this.endDate = endDate;
         this.volunteersNeeded = volunteersNeeded;
+        this.filledSlots = 0l;
+        this.pendingPostulations = 0l;
+        this.acceptedPostulations = 0l;
+        this.rejectedPostulations = 0l;
         this.workTags = workTags;
         this.workHourBlocks = workHourBlocks;
         this.workPostulations = new HashSet<PostulationEntity>();
+        refreshHourMask();
     }
 
     // #region TAGS BLOCKS
 
     /**
-     * Adds a work tag to the work
+     * Adds a work tag to the work. The works of the tag are left untouched,
+     * so they are never loaded just to tag a work.
      * 
      * @param tag Tag to add
      */
@@ -100,15 +147,12 @@ public class WorkEntity {
         if (workTags == null)
             workTags = new HashSet<>();
 
-        if (tag.taggedWorks == null)
-            tag.taggedWorks = new HashSet<>();
-
-        tag.taggedWorks.add(this);
         workTags.add(tag);
     }
 
     /**
-     * Removes a work tag from the work
+     * Removes a work tag from the work. The works of the tag are left
+     * untouched, so they are never loaded just to untag a work.
      * 
      * @param tag Tag to remove
      */
@@ -116,10 +160,6 @@ public class WorkEntity {
         if (workTags == null)
             return;
 
-        if (tag.taggedWorks == null)
-            return;
-
-        tag.taggedWorks.removeIf(w -> w.getWorkId().equals(workId));
         workTags.removeIf(t -> t.getTagId().equals(tag.getTagId()));
     }
 
@@ -140,6 +180,43 @@ public class WorkEntity {
     public void removeWorkHourBlock(WorkHourBlocks block) {
         workHourBlocks.remove(block);
     }
+
+    /**
+     * Gets the week day in which an hour block of the work takes place.
+     * Session works and blocks without week day take place in the work
+     * start date week day.
+     * 
+     * @param block Block of the work
+     * @return Week day of the block, from 0 to 6
+     */
+    public Integer getBlockWeekDay(WorkHourBlocks block) {
+        if (type.equals(ModelsConstants.WORK_TYPE_SESSION) || block.getWeekDay() == -1)
+            return startDate.getDayOfWeek().getValue() % 7;
+
+        return block.getWeekDay();
+    }
+
+    /**
+     * Recomputes the weekly hour mask from the work hour blocks. Must be called
+     * every time the blocks, type or start date of the work change.
+     */
+    public void refreshHourMask() {
+        hourMask = computeHourMask();
+    }
+
+    /**
+     * Computes the weekly hour mask from the hour blocks, without storing it
+     * 
+     * @return Weekly hour mask of the hour blocks
+     */
+    private WeekHourMask computeHourMask() {
+        WeekHourMask mask = new WeekHourMask();
+        if (workHourBlocks != null)
+            for (WorkHourBlocks block : workHourBlocks)
+                mask.set(getBlockWeekDay(block), block.getHourBlock().getHour());
+
+        return mask;
+    }
     // #endregion
 
     // #region POSTULATION
@@ -254,6 +331,52 @@ public class WorkEntity {
         this.volunteersNeeded = volunteersNeeded;
     }
 
+    /**
+     * Gets the weekly hour mask. Rows stored before the mask existed get it
+     * computed on the fly, leaving the entity untouched until the backfill
+     * stores it, so reading it never makes the entity dirty.
+     * 
+     * @return Weekly hour mask of the hour blocks
+     */
+    public WeekHourMask getHourMask() {
+        if (hourMask == null)
+            return computeHourMask();
+
+        return hourMask;
+    }
+
+    public Long getFilledSlots() {
+        return filledSlots;
+    }
+
+    public void setFilledSlots(Long filledSlots) {
+        this.filledSlots = filledSlots;
+    }
+
+    public Long getPendingPostulations() {
+        return pendingPostulations;
+    }
+
+    public void setPendingPostulations(Long pendingPostulations) {
+        this.pendingPostulations = pendingPostulations;
+    }
+
+    public Long getAcceptedPostulations() {
+        return acceptedPostulations;
+    }
+
+    public void setAcceptedPostulations(Long acceptedPostulations) {
+        this.acceptedPostulations = acceptedPostulations;
+    }
+
+    public Long getRejectedPostulations() {
+        return rejectedPostulations;
+    }
+
+    public void setRejectedPostulations(Long rejectedPostulations) {
+        this.rejectedPostulations = rejectedPostulations;
+    }
+
     public Set<PostulationEntity> getWorkPostulations() {
         return workPostulations;
     }
@@ -2,15 +2,21 @@ package com.chiguirongos.backend.models.works;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 
 /**
  * Represents a work instance. This instance is only created when a
@@ -37,6 +43,17 @@ public class WorkInstanceEntity {
     @JoinColumn(name = "volunteer_id")
     private UserEntity volunteerId;
 
+    // Instances stored before the sessions were generated in background already have them
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'GENERATED'")
+    private SessionsGenerationStatusEnum sessionsStatus;
+
+    @NotNull
+    @PositiveOrZero
+    @ColumnDefault("0")
+    private Integer sessionsAttempts;       // Failed attempts to generate the sessions
+
     public WorkInstanceEntity() {
     }
 
@@ -46,6 +63,8 @@ public class WorkInstanceEntity {
         this.endDate = endDate;
         this.workId = workId;
         this.volunteerId = volunteerId;
+        this.sessionsStatus = SessionsGenerationStatusEnum.PENDING;
+        this.sessionsAttempts = 0;
     }
 
     public Long getInstanceId() {
@@ -87,4 +106,20 @@ public class WorkInstanceEntity {
     public void setVolunteerId(UserEntity volunteerId) {
         this.volunteerId = volunteerId;
     }
+
+    public SessionsGenerationStatusEnum getSessionsStatus() {
+        return sessionsStatus;
+    }
+
+    public void setSessionsStatus(SessionsGenerationStatusEnum sessionsStatus) {
+        this.sessionsStatus = sessionsStatus;
+    }
+
+    public Integer getSessionsAttempts() {
+        return sessionsAttempts;
+    }
+
+    public void setSessionsAttempts(Integer sessionsAttempts) {
+        this.sessionsAttempts = sessionsAttempts;
+    }
 }
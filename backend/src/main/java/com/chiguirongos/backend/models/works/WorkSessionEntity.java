@@ -13,6 +13,8 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 
@@ -20,6 +22,7 @@ import jakarta.validation.constraints.PositiveOrZero;
  * Represents a work instance session block and its status
  */
 @Entity
+@Table(uniqueConstraints = { @UniqueConstraint(columnNames = { "work_inst_id", "sessionDate", "sessionTime" }) })
 public class WorkSessionEntity {
     @Id
     @GeneratedValue
@@ -1,10 +1,12 @@
 package com.chiguirongos.backend.repositories;
 
+import java.util.Collection;
 import java.util.Set;
 import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
@@ -13,6 +15,7 @@ import com.chiguirongos.backend.models.postulations.PostulationEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.works.WorkEntity;
 import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.repositories.projections.VolunteerPostulationRow;
 
 /**
  * Repository interface for managing postulations.
@@ -25,20 +28,41 @@ public interface PostulationRepository
 
     List<PostulationEntity> findByVolunteer(UserEntity volunteer, Pageable pageable);
 
-    List<PostulationEntity> findByWorkSupplierIdAndStatus(
-            UserEntity workSupplierId,
-            PostulationStatusEnum status,
-            Pageable pageable);
+    /**
+     * Retrieves the postulations of a volunteer along with their works and
+     * suppliers as flat rows, sorted from the latest start date
+     * 
+     * @param volunteer Volunteer to get the postulations from
+     * @param pageable  Page of postulations to get
+     * @return List of postulation rows of the volunteer
+     */
+    @Query("""
+            select p.postulationId as postulationId, p.status as status,
+                   p.startDate as startDate, p.endDate as endDate,
+                   w.workId as workId, w.name as workName, w.description as workDescription,
+                   w.type as workType, w.volunteersNeeded as volunteersNeeded,
+                   w.startDate as workStartDate, w.endDate as workEndDate,
+                   s.name as supplierName, s.userName as supplierUsername
+            from PostulationEntity as p
+            join p.work as w
+            join w.supplierId as s
+                where p.volunteer = ?1
+            order by p.startDate desc, p.postulationId desc
+            """)
+    List<VolunteerPostulationRow> findVolunteerPostulationRows(UserEntity volunteer, Pageable pageable);
 
     Set<PostulationEntity> findByWorkAndStatus(WorkEntity work, PostulationStatusEnum status);
 
+    Set<PostulationEntity> findByVolunteerAndWorkIn(UserEntity volunteer, Collection<WorkEntity> works);
+
     Boolean existsByVolunteerAndWorkAndStatusIn(
             UserEntity volunteer,
             WorkEntity work,
             List<PostulationStatusEnum> status);
 
     /**
-     * Finds an user postulations between two dates and with specific states
+     * Finds an user postulations between two dates and with specific states,
+     * with their works already loaded
      * 
      * @param volunteer Volunteer to get postulations from
      * @param start     Start date from the range to get the postulations from
@@ -49,16 +73,95 @@ public interface PostulationRepository
     @Query("""
             select p
             from PostulationEntity as p
+            join fetch p.work
             where ((p.startDate <= ?2 and ?2 <= p.endDate) or
                   (?2 <= p.startDate and p.startDate <= ?3)) and
                   p.volunteer = ?1 and p.status in ?4
             """)
-    Set<PostulationEntity> findVolunteerPostulationsBetweenDatesAndStatusIn(
+    Set<PostulationEntity> findVolunteerPostulationsWithWorkBetweenDates(
+            UserEntity volunteer,
+            LocalDate start,
+            LocalDate end,
+            List<PostulationStatusEnum> status);
+
+    /**
+     * Finds the first pending or accepted postulation of a volunteer between two
+     * dates whose work shares an hour block with a weekly hour mask. The
+     * postulations are found through the (volunteer, status) index and the
+     * blocks are compared with the works masks, so the cost doesn't depend on
+     * the number of hour blocks.
+     * 
+     * @param volunteerId          Id of the volunteer
+     * @param start                Start date
+     * @param end                  End date
+     * @param ignoredPostulationId Id of a postulation to skip, 0 to check all
+     * @param maskWord0            First word of the hour mask to check
+     * @param maskWord1            Second word of the hour mask to check
+     * @param maskWord2            Third word of the hour mask to check
+     * @return Id of the first conflicting postulation, null if there is none
+     */
+    @Query(nativeQuery = true, value = """
+            select p.postulation_id
+            from postulation_entity p
+            join work_entity w on w.work_id = p.work_id
+                where p.user_id = ?1 and
+                      p.status in ('PENDING', 'ACCEPTED') and
+                      ((p.start_date <= ?2 and ?2 <= p.end_date) or
+                       (?2 <= p.start_date and p.start_date <= ?3)) and
+                      p.postulation_id <> ?4 and
+                      ((w.mask_word0 & ?5) <> 0 or
+                       (w.mask_word1 & ?6) <> 0 or
+                       (w.mask_word2 & ?7) <> 0)
+            limit 1
+            """)
+    Long findFirstConflictingPostulation(
+            Long volunteerId,
+            LocalDate start,
+            LocalDate end,
+            Long ignoredPostulationId,
+            Long maskWord0,
+            Long maskWord1,
+            Long maskWord2);
+
+    /**
+     * Finds the ids of the works with at least a session between two dates that
+     * a volunteer has a postulation with specific states to
+     * 
+     * @param volunteer Volunteer to get postulations from
+     * @param start     Start date
+     * @param end       End date
+     * @param status    Status of the postulations to look
+     * @return Ids of the works postulated by the volunteer between start and end
+     *         date
+     */
+    @Query("""
+            select p.work.workId
+            from PostulationEntity as p
+            where ((p.work.startDate <= ?2 and ?2 <= p.work.endDate) or
+                  (?2 <= p.work.startDate and p.work.startDate <= ?3)) and
+                  p.volunteer = ?1 and p.status in ?4
+            """)
+    Set<Long> findVolunteerPostulatedWorkIdsBetweenDates(
             UserEntity volunteer,
             LocalDate start,
             LocalDate end,
             List<PostulationStatusEnum> status);
 
+    /**
+     * Finds postulations by id, with their works and suppliers already loaded
+     * 
+     * @param postulationIds Ids of the postulations
+     * @return Postulations with the given ids
+     */
+    @Query("""
+            select p
+            from PostulationEntity as p
+            join fetch p.work as w
+            join fetch w.supplierId
+                where p.postulationId in ?1
+            """)
+    Set<PostulationEntity> findWithWorkByPostulationIdIn(Collection<Long> postulationIds);
+
     /**
      * Finds all the postulations in a supplier's work
      * 
@@ -93,7 +196,8 @@ public interface PostulationRepository
 
     /**
      * Finds all the postulations that are PENDING and with an end date
-     * already in the past.
+     * already in the past. Postulations to works of deleted or former
+     * suppliers are left to the purge of their works.
      * 
      * @return Postulations that cant be accepted anymore because its end date
      *         is in the past.
@@ -103,6 +207,8 @@ public interface PostulationRepository
             from PostulationEntity as p
                 where p.status like 'PENDING' and
                 current_date() > p.endDate
+                and p.work.supplierId.deleted = false
+                and p.work.supplierId.role = 'SUPPLIER'
             """)
     Set<PostulationEntity> findExpiredPendingPostulations();
 
@@ -118,4 +224,49 @@ public interface PostulationRepository
             List<String> suppliers,
             LocalDate start,
             LocalDate end);
-}
\ No newline at end of file
+
+    /**
+     * Deletes all the postulations to some works in a single statement
+     * 
+     * @param workIds Ids of the works
+     * @return Number of deleted postulations
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from postulation_entity
+                where work_id in ?1
+            """)
+    int deleteAllByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Deletes all the postulations of a volunteer in a single statement. The
+     * postulation counters of their works must be released first.
+     * 
+     * @param volunteerId Id of the volunteer
+     * @return Number of deleted postulations
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from postulation_entity
+                where user_id = ?1
+            """)
+    int deleteAllByVolunteerId(Long volunteerId);
+
+    /**
+     * Deletes up to a number of postulations to the works of a supplier
+     * 
+     * @param supplierId Id of the supplier
+     * @param size       Maximum number of postulations to delete
+     * @return Number of deleted postulations
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from postulation_entity
+                where postulation_id in (select p.postulation_id
+                                         from postulation_entity p
+                                         join work_entity w on w.work_id = p.work_id
+                                             where w.supplier_id = ?1
+                                         limit ?2)
+            """)
+    int deleteChunkBySupplierId(Long supplierId, Integer size);
+}
@@ -1,8 +1,23 @@
 package com.chiguirongos.backend.repositories;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.chiguirongos.backend.models.users.UserHourBlocks;
 
-public interface UserHourBlockRepository extends CrudRepository<UserHourBlocks, Long> {    
+public interface UserHourBlockRepository extends CrudRepository<UserHourBlocks, Long> {
+
+    /**
+     * Deletes all the preferred hour blocks of an user in a single statement
+     * 
+     * @param userId Id of the user
+     * @return Number of deleted hour blocks
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from user_hour_blocks
+                where user_id = ?1
+            """)
+    int deleteAllByUserId(Long userId);
 }
\ No newline at end of file
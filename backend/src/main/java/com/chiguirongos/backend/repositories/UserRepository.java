@@ -1,17 +1,151 @@
 package com.chiguirongos.backend.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.repositories.projections.PendingPurgeRow;
 
 public interface UserRepository extends CrudRepository<UserEntity, Long>, PagingAndSortingRepository<UserEntity, Long> {
     
     UserEntity findByUserName(String userName);
+    Set<UserEntity> findByUserNameIn(Collection<String> userNames);
     Boolean existsByUserName(String userName);
-    List<UserEntity> findByUserNameNotLike(String userName, Pageable pageable);
-    List<UserEntity> findByUserNameNotLikeAndRoleIn(String userName, List<String> role, Pageable pageable);
+    List<UserEntity> findByUserNameNotLikeAndDeletedFalse(String userName, Pageable pageable);
+    List<UserEntity> findByUserNameNotLikeAndRoleInAndDeletedFalse(String userName, List<String> role, Pageable pageable);
+
+    /**
+     * Retrieves the users whose weekly hour mask hasn't been computed yet
+     * 
+     * @return Users without hour mask
+     */
+    @Query("""
+            select u
+            from UserEntity u
+                where u.hourMask.maskWord0 is null
+            """)
+    Set<UserEntity> findWithoutHourMask();
+
+    /**
+     * Links some tags to an user writing the rows of the join table directly,
+     * skipping the tags the user already has
+     * 
+     * @param userId Id of the user
+     * @param tagIds Ids of the tags to link
+     * @return Number of tags linked
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into user_tags (user_id, tag_id)
+            select ?1, t.tag_id
+            from tag_entity t
+                where t.tag_id in ?2
+            on conflict do nothing
+            """)
+    int linkTags(Long userId, Collection<Long> tagIds);
+
+    /**
+     * Unlinks some tags from an user deleting the rows of the join table
+     * directly
+     * 
+     * @param userId Id of the user
+     * @param tagIds Ids of the tags to unlink
+     * @return Number of tags unlinked
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from user_tags
+                where user_id = ?1 and
+                      tag_id in ?2
+            """)
+    int unlinkTags(Long userId, Collection<Long> tagIds);
+
+    /**
+     * Unlinks all the tags of an user in a single statement
+     * 
+     * @param userId Id of the user
+     * @return Number of tags unlinked
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from user_tags
+                where user_id = ?1
+            """)
+    int unlinkAllTags(Long userId);
+
+    /**
+     * Deletes an user in a single statement. Everything referencing it must be
+     * deleted first.
+     * 
+     * @param userId Id of the user
+     * @return Number of deleted users
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from user_entity
+                where user_id = ?1
+            """)
+    int deleteByUserId(Long userId);
+
+    /**
+     * Retrieves the ids of the users whose data is waiting to be purged,
+     * oldest first
+     * 
+     * @param pageable Maximum number of ids to retrieve
+     * @return Ids of the users
+     */
+    @Query("""
+            select u.userId
+            from UserEntity u
+                where u.purgePending = true
+            order by u.userId
+            """)
+    List<Long> findIdsByPurgePending(Pageable pageable);
+
+    /**
+     * Retrieves the users whose data is waiting to be purged, without loading
+     * their preferences and postulations
+     * 
+     * @return Users waiting to be purged, oldest first
+     */
+    @Query("""
+            select u.userId as userId, u.userName as userName, u.role as role, u.deleted as deleted
+            from UserEntity u
+                where u.purgePending = true
+            order by u.userId
+            """)
+    List<PendingPurgeRow> findPendingPurges();
+
+    /**
+     * Marks the purge of an user as complete, unless its role changed, it was
+     * deleted or more data of a previous role was left since the purge read it
+     * 
+     * @param userId        Id of the user
+     * @param role          Role of the user when the purge read it
+     * @param supplierData  Whether supplier data was pending when the purge
+     *                      read it
+     * @param volunteerData Whether volunteer data was pending when the purge
+     *                      read it
+     * @return Number of updated users
+     */
+    @Modifying
+    @Query("""
+            update UserEntity u
+                set u.purgePending = false,
+                    u.purgeSupplierData = false,
+                    u.purgeVolunteerData = false
+                where u.userId = ?1 and
+                      u.role = ?2 and
+                      u.deleted = false and
+                      u.purgeSupplierData = ?3 and
+                      u.purgeVolunteerData = ?4
+            """)
+    int finishPurge(Long userId, String role, Boolean supplierData, Boolean volunteerData);
 }
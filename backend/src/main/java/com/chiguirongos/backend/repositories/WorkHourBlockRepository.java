@@ -1,8 +1,25 @@
 package com.chiguirongos.backend.repositories;
 
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.chiguirongos.backend.models.works.WorkHourBlocks;
 
-public interface WorkHourBlockRepository extends CrudRepository<WorkHourBlocks, Long> {    
+public interface WorkHourBlockRepository extends CrudRepository<WorkHourBlocks, Long> {
+
+    /**
+     * Deletes all the hour blocks of some works in a single statement
+     * 
+     * @param workIds Ids of the works
+     * @return Number of deleted hour blocks
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_hour_blocks
+                where work_id in ?1
+            """)
+    int deleteAllByWorkIdIn(Collection<Long> workIds);
 }
\ No newline at end of file
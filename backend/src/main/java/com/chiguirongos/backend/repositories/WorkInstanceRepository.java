@@ -1,9 +1,16 @@
 package com.chiguirongos.backend.repositories;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
 import com.chiguirongos.backend.models.works.WorkInstanceEntity;
 import com.chiguirongos.backend.models.works.WorkEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
@@ -14,6 +21,219 @@ import com.chiguirongos.backend.models.users.UserEntity;
  */
 public interface WorkInstanceRepository extends CrudRepository<WorkInstanceEntity, Long> {
     Long countByWorkId(WorkEntity workId);
-    Set<WorkInstanceEntity> findByWorkId(WorkEntity workId);
-    Set<WorkInstanceEntity> findByVolunteerId(UserEntity volunteerId);
+
+    /**
+     * Retrieves the ids of the work instances with a specific sessions
+     * generation status, oldest first
+     * 
+     * @param status   Sessions generation status
+     * @param pageable Maximum number of ids to retrieve
+     * @return Ids of the work instances
+     */
+    @Query("""
+            select wi.instanceId
+            from WorkInstanceEntity as wi
+                where wi.sessionsStatus = ?1
+            order by wi.instanceId
+            """)
+    List<Long> findIdsBySessionsStatus(SessionsGenerationStatusEnum status, Pageable pageable);
+
+    /**
+     * Retrieves the work instances of a volunteer with a specific sessions
+     * generation status that overlap two dates, along with their works and hour
+     * blocks
+     * 
+     * @param volunteer Volunteer of the instances
+     * @param status    Sessions generation status
+     * @param start     Start date
+     * @param end       End date
+     * @return Set of work instances of the volunteer between the two dates
+     */
+    @Query("""
+            select wi
+            from WorkInstanceEntity as wi
+            join fetch wi.workId as w
+            left join fetch w.workHourBlocks
+                where wi.volunteerId = ?1 and
+                      wi.sessionsStatus = ?2 and
+                      wi.startDate <= ?4 and
+                      wi.endDate >= ?3
+            """)
+    Set<WorkInstanceEntity> findVolunteerInstancesBetweenDates(
+            UserEntity volunteer,
+            SessionsGenerationStatusEnum status,
+            LocalDate start,
+            LocalDate end);
+
+    /**
+     * Retrieves the work instances of some volunteers with a specific sessions
+     * generation status that overlap two dates, along with their volunteers,
+     * works and hour blocks
+     * 
+     * @param volunteers Usernames of the volunteers
+     * @param status     Sessions generation status
+     * @param start      Start date
+     * @param end        End date
+     * @return Set of work instances of the volunteers between the two dates
+     */
+    @Query("""
+            select wi
+            from WorkInstanceEntity as wi
+            join fetch wi.volunteerId as v
+            join fetch wi.workId as w
+            left join fetch w.workHourBlocks
+                where v.userName in ?1 and
+                      wi.sessionsStatus = ?2 and
+                      wi.startDate <= ?4 and
+                      wi.endDate >= ?3
+            """)
+    Set<WorkInstanceEntity> findVolunteersInstancesBetweenDates(
+            List<String> volunteers,
+            SessionsGenerationStatusEnum status,
+            LocalDate start,
+            LocalDate end);
+
+    /**
+     * Retrieves the work instances of the works of some suppliers with a
+     * specific sessions generation status that overlap two dates, along with
+     * their volunteers, works and hour blocks
+     * 
+     * @param suppliers Usernames of the suppliers
+     * @param status    Sessions generation status
+     * @param start     Start date
+     * @param end       End date
+     * @return Set of work instances of the suppliers works between the two dates
+     */
+    @Query("""
+            select wi
+            from WorkInstanceEntity as wi
+            join fetch wi.volunteerId
+            join fetch wi.workId as w
+            join fetch w.supplierId as s
+            left join fetch w.workHourBlocks
+                where s.userName in ?1 and
+                      wi.sessionsStatus = ?2 and
+                      wi.startDate <= ?4 and
+                      wi.endDate >= ?3
+            """)
+    Set<WorkInstanceEntity> findSuppliersInstancesBetweenDates(
+            List<String> suppliers,
+            SessionsGenerationStatusEnum status,
+            LocalDate start,
+            LocalDate end);
+
+    /**
+     * Retrieves the instances of a work with a specific sessions generation
+     * status that include a date, along with their volunteers and the work
+     * hour blocks
+     * 
+     * @param workId Id of the work
+     * @param status Sessions generation status
+     * @param date   Date the instances must include
+     * @return Set of work instances of the work at the date
+     */
+    @Query("""
+            select wi
+            from WorkInstanceEntity as wi
+            join fetch wi.volunteerId
+            join fetch wi.workId as w
+            left join fetch w.workHourBlocks
+                where w.workId = ?1 and
+                      wi.sessionsStatus = ?2 and
+                      wi.startDate <= ?3 and
+                      wi.endDate >= ?3
+            """)
+    Set<WorkInstanceEntity> findWorkInstancesAtDate(Long workId, SessionsGenerationStatusEnum status, LocalDate date);
+
+    /**
+     * Retrieves the usernames of the volunteers with an instance of some works
+     * 
+     * @param workIds Ids of the works
+     * @return Usernames of the volunteers
+     */
+    @Query("""
+            select distinct v.userName
+            from WorkInstanceEntity as wi
+            join wi.volunteerId as v
+                where wi.workId.workId in ?1
+            """)
+    Set<String> findVolunteerUserNamesByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Deletes all the instances of some works in a single statement. Their
+     * sessions must be deleted first.
+     * 
+     * @param workIds Ids of the works
+     * @return Number of deleted instances
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_instance_entity
+                where work_id in ?1
+            """)
+    int deleteAllByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Deletes all the instances of a volunteer in a single statement. Their
+     * sessions must be deleted first.
+     * 
+     * @param volunteerId Id of the volunteer
+     * @return Number of deleted instances
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_instance_entity
+                where volunteer_id = ?1
+            """)
+    int deleteAllByVolunteerId(Long volunteerId);
+
+    /**
+     * Retrieves the usernames of the volunteers with an instance of the works
+     * of a supplier
+     * 
+     * @param supplier Creator of the works
+     * @return Usernames of the volunteers
+     */
+    @Query("""
+            select distinct v.userName
+            from WorkInstanceEntity as wi
+            join wi.volunteerId as v
+                where wi.workId.supplierId = ?1
+            """)
+    Set<String> findVolunteerUserNamesBySupplier(UserEntity supplier);
+
+    /**
+     * Deletes up to a number of instances of the works of a supplier. Their
+     * sessions must be deleted first.
+     * 
+     * @param supplierId Id of the supplier
+     * @param size       Maximum number of instances to delete
+     * @return Number of deleted instances
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_instance_entity
+                where instance_id in (select wi.instance_id
+                                      from work_instance_entity wi
+                                      join work_entity w on w.work_id = wi.work_id
+                                          where w.supplier_id = ?1
+                                      limit ?2)
+            """)
+    int deleteChunkBySupplierId(Long supplierId, Integer size);
+
+    /**
+     * Locks the rows of some work instances until the transaction ends. The
+     * rows are locked in id order, so concurrent locks never deadlock.
+     * 
+     * @param instanceIds Ids of the work instances
+     * @return Ids of the locked instances
+     */
+    @Query(nativeQuery = true, value = """
+            select wi.instance_id
+            from work_instance_entity wi
+                where wi.instance_id in ?1
+            order by wi.instance_id
+            for update
+            """)
+    List<Long> lockByInstanceIdIn(Collection<Long> instanceIds);
 }
@@ -1,13 +1,23 @@
 package com.chiguirongos.backend.repositories;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.projections.WorkFeedKey;
+import com.chiguirongos.backend.repositories.projections.WorkHourBlockRow;
+import com.chiguirongos.backend.repositories.projections.WorkPostulationsCount;
+import com.chiguirongos.backend.repositories.projections.WorkSpanRow;
+import com.chiguirongos.backend.repositories.projections.WorkTagRow;
 
 /**
  * Repository interface for managing works.
@@ -19,7 +29,7 @@ public interface WorkRepository extends CrudRepository<WorkEntity, Long> {
 
     Boolean existsByNameAndSupplierId(String name, UserEntity supplierId);
 
-    Set<WorkEntity> findBySupplierId(UserEntity supplierId);
+    Set<WorkEntity> findBySupplierIdInAndNameIn(Collection<UserEntity> supplierIds, Collection<String> names);
 
     Set<WorkEntity> findAll();
 
@@ -30,8 +40,10 @@ public interface WorkRepository extends CrudRepository<WorkEntity, Long> {
      * @param supplierId Supplier of the works to get
      * @param start      Start date
      * @param end        End date
-     * @return Works from supplier between start and end date
+     * @return Works from supplier between start and end date, with their hour
+     *         blocks, tags and supplier already loaded
      */
+    @EntityGraph(WorkEntity.CALENDAR_GRAPH)
     @Query("""
             select w
             from WorkEntity w
@@ -43,18 +55,434 @@ public interface WorkRepository extends CrudRepository<WorkEntity, Long> {
 
     /**
      * Query to retrieve all the works of that have at least a session
-     * between an end and start date
+     * between an end and start date. Works of deleted users, or of users that
+     * are no longer suppliers, are left out while they wait to be purged.
      * 
      * @param supplierId Supplier of the works to get
      * @param start      Start date
      * @param end        End date
-     * @return Works between start and end date
+     * @return Works between start and end date, with their hour blocks, tags
+     *         and supplier already loaded
      */
+    @EntityGraph(WorkEntity.CALENDAR_GRAPH)
     @Query("""
             select w
             from WorkEntity w
-                where (w.startDate <= ?1 and ?1 <= w.endDate) or
-                      (?1 <= w.startDate and w.startDate <= ?2)
+                where ((w.startDate <= ?1 and ?1 <= w.endDate) or
+                       (?1 <= w.startDate and w.startDate <= ?2))
+                    and w.supplierId.deleted = false
+                    and w.supplierId.role = 'SUPPLIER'
             """)
     Set<WorkEntity> findWorksBetweenDates(LocalDate start, LocalDate end);
+
+    /**
+     * Atomically takes a free slot of a work. The update locks the work row
+     * until the transaction ends, so concurrent accepts on the same work are
+     * serialized while accepts on different works don't block each other.
+     * 
+     * @param workId Id of the work
+     * @return Number of updated works, 0 if the work is already full
+     */
+    @Modifying
+    @Query("""
+            update WorkEntity w
+                set w.filledSlots = w.filledSlots + 1
+                where w.workId = ?1 and
+                      w.filledSlots < w.volunteersNeeded
+            """)
+    int incrementFilledSlots(Long workId);
+
+    /**
+     * Locks the row of a work until the transaction ends and gets its number of
+     * free slots
+     * 
+     * @param workId Id of the work
+     * @return Number of free slots of the work
+     */
+    @Query(nativeQuery = true, value = """
+            select w.volunteers_needed - w.filled_slots
+            from work_entity w
+                where w.work_id = ?1
+            for update
+            """)
+    Long lockFreeSlots(Long workId);
+
+    /**
+     * Atomically takes several free slots of a work
+     * 
+     * @param workId Id of the work
+     * @param slots  Number of slots to take
+     * @return Number of updated works, 0 if the work hasn't enough free slots
+     */
+    @Modifying
+    @Query("""
+            update WorkEntity w
+                set w.filledSlots = w.filledSlots + ?2
+                where w.workId = ?1 and
+                      w.filledSlots + ?2 <= w.volunteersNeeded
+            """)
+    int addFilledSlots(Long workId, Long slots);
+
+    /**
+     * Checks if a work has no free slots left
+     * 
+     * @param workId Id of the work
+     * @return True if every slot of the work is filled
+     */
+    @Query("""
+            select case when w.filledSlots >= w.volunteersNeeded then true else false end
+            from WorkEntity w
+                where w.workId = ?1
+            """)
+    Boolean isWorkFull(Long workId);
+
+    /**
+     * Releases the slots taken by a volunteer in every work it has an instance
+     * of. Must be called before the volunteer instances are deleted.
+     * 
+     * @param volunteer Volunteer whose slots are released
+     * @return Number of updated works
+     */
+    @Modifying
+    @Query("""
+            update WorkEntity w
+                set w.filledSlots = w.filledSlots - (select count(wi)
+                                                     from WorkInstanceEntity wi
+                                                         where wi.workId = w and
+                                                               wi.volunteerId = ?1)
+                where w in (select wi.workId
+                            from WorkInstanceEntity wi
+                                where wi.volunteerId = ?1)
+            """)
+    int releaseVolunteerSlots(UserEntity volunteer);
+
+    /**
+     * Sets the filled slots counter of every work whose value drifted from its
+     * real number of work instances.
+     * 
+     * @return Number of repaired works
+     */
+    @Modifying
+    @Query("""
+            update WorkEntity w
+                set w.filledSlots = (select count(wi) from WorkInstanceEntity wi where wi.workId = w)
+                where w.filledSlots is null or
+                      w.filledSlots <> (select count(wi) from WorkInstanceEntity wi where wi.workId = w)
+            """)
+    int reconcileFilledSlots();
+
+    /**
+     * Adds a change to the postulation counters of a work in a single atomic
+     * update, so concurrent status changes never lose counts.
+     * 
+     * @param workId   Id of the work
+     * @param pending  Change of the pending postulations
+     * @param accepted Change of the accepted postulations
+     * @param rejected Change of the rejected postulations
+     * @return Number of updated works
+     */
+    @Modifying
+    @Query("""
+            update WorkEntity w
+                set w.pendingPostulations = w.pendingPostulations + ?2,
+                    w.acceptedPostulations = w.acceptedPostulations + ?3,
+                    w.rejectedPostulations = w.rejectedPostulations + ?4
+                where w.workId = ?1
+            """)
+    int addPostulationCounts(Long workId, Long pending, Long accepted, Long rejected);
+
+    /**
+     * Removes the postulations of a volunteer from the postulation counters
+     * of their works. Must be called before deleting the postulations.
+     * 
+     * @param volunteerId Id of the volunteer whose postulations are going to
+     *                    be deleted
+     * @return Number of updated works
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            update work_entity w
+                set pending_postulations = w.pending_postulations - c.pending,
+                    accepted_postulations = w.accepted_postulations - c.accepted,
+                    rejected_postulations = w.rejected_postulations - c.rejected
+            from (select p.work_id,
+                         count(*) filter (where p.status = 'PENDING') as pending,
+                         count(*) filter (where p.status = 'ACCEPTED') as accepted,
+                         count(*) filter (where p.status = 'REJECTED') as rejected
+                  from postulation_entity p
+                      where p.user_id = ?1
+                  group by p.work_id) c
+                where w.work_id = c.work_id
+            """)
+    int releaseVolunteerPostulations(Long volunteerId);
+
+    /**
+     * Retrieves the dates and suppliers of the works a volunteer has an
+     * instance of or a postulation to
+     * 
+     * @param volunteer Volunteer of the instances and postulations
+     * @return Dates and supplier usernames of the works
+     */
+    @Query("""
+            select distinct w.startDate as startDate, w.endDate as endDate, s.userName as supplierUserName
+            from WorkEntity as w
+            join w.supplierId as s
+                where w in (select wi.workId from WorkInstanceEntity as wi where wi.volunteerId = ?1) or
+                      w in (select p.work from PostulationEntity as p where p.volunteer = ?1)
+            """)
+    List<WorkSpanRow> findVolunteerWorkSpans(UserEntity volunteer);
+
+    /**
+     * Sets the postulation counters of every work whose values drifted from
+     * the real number of postulations in every status.
+     * 
+     * @return Number of repaired works
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            update work_entity w
+                set pending_postulations = c.pending,
+                    accepted_postulations = c.accepted,
+                    rejected_postulations = c.rejected
+            from (select wc.work_id,
+                         count(p.postulation_id) filter (where p.status = 'PENDING') as pending,
+                         count(p.postulation_id) filter (where p.status = 'ACCEPTED') as accepted,
+                         count(p.postulation_id) filter (where p.status = 'REJECTED') as rejected
+                  from work_entity wc
+                  left join postulation_entity p on p.work_id = wc.work_id
+                  group by wc.work_id) c
+                where w.work_id = c.work_id and
+                      (w.pending_postulations is distinct from c.pending or
+                       w.accepted_postulations is distinct from c.accepted or
+                       w.rejected_postulations is distinct from c.rejected)
+            """)
+    int reconcilePostulationCounts();
+
+    /**
+     * Retrieves the number of pending postulations of many works from their
+     * counters
+     * 
+     * @param workIds Ids of the works
+     * @return Number of pending postulations of every work
+     */
+    @Query("""
+            select w.workId as workId, w.pendingPostulations as postulationsCount
+            from WorkEntity as w
+                where w.workId in ?1
+            """)
+    List<WorkPostulationsCount> findPendingPostulationsCounts(Collection<Long> workIds);
+
+    /**
+     * Retrieves the works whose weekly hour mask hasn't been computed yet
+     * 
+     * @return Works without hour mask
+     */
+    @Query("""
+            select w
+            from WorkEntity w
+                where w.hourMask.maskWord0 is null
+            """)
+    Set<WorkEntity> findWithoutHourMask();
+
+    /**
+     * Retrieves some works by their ids
+     * 
+     * @param workIds Ids of the works
+     * @return Works with their hour blocks, tags and supplier already loaded
+     */
+    @EntityGraph(WorkEntity.CALENDAR_GRAPH)
+    List<WorkEntity> findByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Keyset query to retrieve a page of the works visible to a volunteer with at
+     * least a session between a start and end date. Works matching the
+     * volunteer preferred hour blocks, or postulated by the volunteer, come
+     * first, and works with the same rank are sorted by id. Works of deleted
+     * users, or of users that are no longer suppliers, are left out while they
+     * wait to be purged.
+     * 
+     * @param start         Start date
+     * @param end           End date
+     * @param volunteerId   Id of the volunteer
+     * @param maskWord0     First word of the preferred hour blocks mask
+     * @param maskWord1     Second word of the preferred hour blocks mask
+     * @param maskWord2     Third word of the preferred hour blocks mask
+     * @param onlyPreferred If true, only matching works are retrieved
+     * @param afterWorkId   Id of the last work of the previous page, 0 for the
+     *                      first page
+     * @param limit         Maximum number of works to retrieve
+     * @return Keys of the works in the page
+     */
+    @Query(nativeQuery = true, value = """
+            select f.work_id as "workId", f.postulated as "postulated", f.feed_rank as "feedRank"
+            from (select w.work_id,
+                         w.filled_slots,
+                         w.volunteers_needed,
+                         v.postulated,
+                         case when v.postulated or
+                                   (w.mask_word0 & ?4) <> 0 or
+                                   (w.mask_word1 & ?5) <> 0 or
+                                   (w.mask_word2 & ?6) <> 0
+                              then 0 else 1 end as feed_rank
+                  from work_entity w
+                  join user_entity s on s.user_id = w.supplier_id
+                  cross join lateral (select exists (select 1
+                                                     from postulation_entity p
+                                                         where p.work_id = w.work_id and
+                                                               p.user_id = ?3 and
+                                                               p.status in ('PENDING', 'ACCEPTED')) as postulated) v
+                      where ((w.start_date <= ?1 and ?1 <= w.end_date) or
+                             (?1 <= w.start_date and w.start_date <= ?2)) and
+                            s.deleted = false and
+                            s.role = 'SUPPLIER') f
+                where (f.filled_slots < f.volunteers_needed or f.postulated) and
+                      (?7 = false or f.feed_rank = 0) and
+                      f.work_id > ?8
+            order by f.feed_rank, f.work_id
+            limit ?9
+            """)
+    List<WorkFeedKey> findVolunteerFeedPage(
+            LocalDate start,
+            LocalDate end,
+            Long volunteerId,
+            Long maskWord0,
+            Long maskWord1,
+            Long maskWord2,
+            Boolean onlyPreferred,
+            Long afterWorkId,
+            Integer limit);
+
+    /**
+     * Retrieves a page of the works of a supplier with pending postulations,
+     * sorted by id
+     * 
+     * @param supplierId Supplier of the works
+     * @param pageable   Page of works to get
+     * @return Page of works with at least one pending postulation
+     */
+    @Query("""
+            select w
+            from WorkEntity as w
+                where w.supplierId = ?1 and
+                      w.pendingPostulations > 0
+            order by w.workId
+            """)
+    List<WorkEntity> findSupplierWorksWithPendingPostulations(UserEntity supplierId, Pageable pageable);
+
+    /**
+     * Retrieves the hour blocks of many works in a single query
+     * 
+     * @param workIds Ids of the works
+     * @return Hour blocks of the works, along with their work ids
+     */
+    @Query("""
+            select w.workId as workId, hb.hourBlock as hourBlock, hb.weekDay as weekDay
+            from WorkEntity as w
+            join w.workHourBlocks as hb
+                where w.workId in ?1
+            """)
+    List<WorkHourBlockRow> findHourBlocksByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Retrieves the tag names of many works in a single query
+     * 
+     * @param workIds Ids of the works
+     * @return Tag names of the works, along with their work ids
+     */
+    @Query("""
+            select w.workId as workId, t.name as tagName
+            from WorkEntity as w
+            join w.workTags as t
+                where w.workId in ?1
+            """)
+    List<WorkTagRow> findTagNamesByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Links some tags to a work writing the rows of the join table directly,
+     * skipping the tags the work already has
+     * 
+     * @param workId Id of the work
+     * @param tagIds Ids of the tags to link
+     * @return Number of tags linked
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into work_tags (work_id, tag_id)
+            select ?1, t.tag_id
+            from tag_entity t
+                where t.tag_id in ?2
+            on conflict do nothing
+            """)
+    int linkTags(Long workId, Collection<Long> tagIds);
+
+    /**
+     * Unlinks some tags from a work deleting the rows of the join table
+     * directly
+     * 
+     * @param workId Id of the work
+     * @param tagIds Ids of the tags to unlink
+     * @return Number of tags unlinked
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_tags
+                where work_id = ?1 and
+                      tag_id in ?2
+            """)
+    int unlinkTags(Long workId, Collection<Long> tagIds);
+
+    /**
+     * Retrieves the ids of the works of a supplier
+     * 
+     * @param supplier Creator of the works
+     * @return Ids of the works
+     */
+    @Query("""
+            select w.workId
+            from WorkEntity as w
+                where w.supplierId = ?1
+            """)
+    List<Long> findIdsBySupplierId(UserEntity supplier);
+
+    /**
+     * Retrieves a page of the ids of the works of a supplier
+     * 
+     * @param supplier Creator of the works
+     * @param pageable Page of ids to retrieve
+     * @return Ids of the works
+     */
+    @Query("""
+            select w.workId
+            from WorkEntity as w
+                where w.supplierId = ?1
+            order by w.workId
+            """)
+    List<Long> findIdsBySupplierId(UserEntity supplier, Pageable pageable);
+
+    /**
+     * Unlinks all the tags of some works in a single statement
+     * 
+     * @param workIds Ids of the works
+     * @return Number of tags unlinked
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_tags
+                where work_id in ?1
+            """)
+    int unlinkAllTags(Collection<Long> workIds);
+
+    /**
+     * Deletes some works in a single statement. Everything referencing them
+     * must be deleted first.
+     * 
+     * @param workIds Ids of the works
+     * @return Number of deleted works
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_entity
+                where work_id in ?1
+            """)
+    int deleteAllByWorkIdIn(Collection<Long> workIds);
 }
@@ -2,13 +2,17 @@ package com.chiguirongos.backend.repositories;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.WorkSessionStatusEnum;
 import com.chiguirongos.backend.models.works.WorkInstanceEntity;
 import com.chiguirongos.backend.models.works.WorkSessionEntity;
 
@@ -18,9 +22,39 @@ import com.chiguirongos.backend.models.works.WorkSessionEntity;
  */
 public interface WorkSessionRepository extends CrudRepository<WorkSessionEntity, Long> {
 
-    Set<WorkSessionEntity> findByWorkInstIn(Set<WorkInstanceEntity> workInst);
+    Optional<WorkSessionEntity> findByWorkInstAndSessionDateAndSessionTime(WorkInstanceEntity workInst,
+            LocalDate sessionDate, LocalTime sessionTime);
 
-    void removeByWorkInst(WorkInstanceEntity workInst);
+    /**
+     * Retrieves the stored sessions of some work instances between two dates
+     * 
+     * @param workInsts Work instances to get the sessions of
+     * @param start     Start date of the sessions
+     * @param end       End date of the sessions
+     * @return Stored sessions of the instances between the two dates
+     */
+    @Query("""
+            select ws
+            from WorkSessionEntity as ws
+                where ws.workInst in ?1 and
+                      ws.sessionDate >= ?2 and
+                      ws.sessionDate <= ?3
+            """)
+    Set<WorkSessionEntity> findByWorkInstInBetweenDates(Collection<WorkInstanceEntity> workInsts, LocalDate start,
+            LocalDate end);
+
+    /**
+     * Deletes all the sessions of a work instance in a single statement
+     * 
+     * @param workInst Work instance to delete the sessions of
+     * @return Number of deleted sessions
+     */
+    @Modifying
+    @Query("""
+            delete from WorkSessionEntity ws
+                where ws.workInst = ?1
+            """)
+    int deleteAllByWorkInst(WorkInstanceEntity workInst);
 
     /**
      * Retrieves all the work sessions from a work in certain date and time
@@ -29,18 +63,53 @@ public interface WorkSessionRepository extends CrudRepository<WorkSessionEntity,
      * @param date   Date from the sessions to get
      * @param time   Time from the sessions to get
      * @return Set of work sessions within the date and time parameters, and
-     *         associated to the work with workId
+     *         associated to the work with workId, with their volunteers already
+     *         loaded
      */
     @Query("""
             select ws
             from WorkSessionEntity as ws
-            join ws.workInst as wi
+            join fetch ws.workInst as wi
+            join fetch wi.volunteerId
                 where wi.workId.workId = ?1 and
                       ws.sessionDate = ?2 and
                       ws.sessionTime = ?3
             """)
     Set<WorkSessionEntity> findWorkSessionsInBlock(Long workId, LocalDate date, LocalTime time);
 
+    /**
+     * Finds work sessions by id, with their works, suppliers and volunteers
+     * already loaded
+     * 
+     * @param ids Ids of the sessions
+     * @return Work sessions with the given ids
+     */
+    @Query("""
+            select ws
+            from WorkSessionEntity as ws
+            join fetch ws.workInst as wi
+            join fetch wi.workId as w
+            join fetch w.supplierId
+            join fetch wi.volunteerId
+                where ws.id in ?1
+            """)
+    Set<WorkSessionEntity> findWithWorkByIdIn(Collection<Long> ids);
+
+    /**
+     * Changes the status of some work sessions in a single statement
+     * 
+     * @param ids       Ids of the sessions
+     * @param newStatus New status of the sessions
+     * @return Number of updated sessions
+     */
+    @Modifying
+    @Query("""
+            update WorkSessionEntity ws
+                set ws.status = ?2
+                where ws.id in ?1
+            """)
+    int updateStatusByIdIn(Collection<Long> ids, WorkSessionStatusEnum newStatus);
+
     /**
      * Finds all the work sessions of a volunteer between two dates
      * 
@@ -107,4 +176,73 @@ public interface WorkSessionRepository extends CrudRepository<WorkSessionEntity,
             List<String> volunteers,
             LocalDate start,
             LocalDate end);
+
+    /**
+     * Deletes all the sessions of the instances of some works in a single
+     * statement
+     * 
+     * @param workIds Ids of the works
+     * @return Number of deleted sessions
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_session_entity ws
+            using work_instance_entity wi
+                where ws.work_inst_id = wi.instance_id and
+                      wi.work_id in ?1
+            """)
+    int deleteAllByWorkIdIn(Collection<Long> workIds);
+
+    /**
+     * Deletes all the sessions of the instances of a volunteer in a single
+     * statement
+     * 
+     * @param volunteerId Id of the volunteer
+     * @return Number of deleted sessions
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_session_entity ws
+            using work_instance_entity wi
+                where ws.work_inst_id = wi.instance_id and
+                      wi.volunteer_id = ?1
+            """)
+    int deleteAllByVolunteerId(Long volunteerId);
+
+    /**
+     * Deletes up to a number of sessions of the works of a supplier
+     * 
+     * @param supplierId Id of the supplier
+     * @param size       Maximum number of sessions to delete
+     * @return Number of deleted sessions
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_session_entity
+                where id in (select ws.id
+                             from work_session_entity ws
+                             join work_instance_entity wi on wi.instance_id = ws.work_inst_id
+                             join work_entity w on w.work_id = wi.work_id
+                                 where w.supplier_id = ?1
+                             limit ?2)
+            """)
+    int deleteChunkBySupplierId(Long supplierId, Integer size);
+
+    /**
+     * Deletes up to a number of sessions of the instances of a volunteer
+     * 
+     * @param volunteerId Id of the volunteer
+     * @param size        Maximum number of sessions to delete
+     * @return Number of deleted sessions
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            delete from work_session_entity
+                where id in (select ws.id
+                             from work_session_entity ws
+                             join work_instance_entity wi on wi.instance_id = ws.work_inst_id
+                                 where wi.volunteer_id = ?1
+                             limit ?2)
+            """)
+    int deleteChunkByVolunteerId(Long volunteerId, Integer size);
 }
@@ -0,0 +1,15 @@
+package com.chiguirongos.backend.repositories.projections;
+
+/**
+ * User whose data is waiting to be purged.
+ */
+public interface PendingPurgeRow {
+
+    Long getUserId();
+
+    String getUserName();
+
+    String getRole();
+
+    Boolean getDeleted();
+}
@@ -0,0 +1,38 @@
+package com.chiguirongos.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+
+/**
+ * Postulation of a volunteer along with the data of its work and supplier,
+ * retrieved as a single flat row.
+ */
+public interface VolunteerPostulationRow {
+
+    Long getPostulationId();
+
+    PostulationStatusEnum getStatus();
+
+    LocalDate getStartDate();
+
+    LocalDate getEndDate();
+
+    Long getWorkId();
+
+    String getWorkName();
+
+    String getWorkDescription();
+
+    String getWorkType();
+
+    Long getVolunteersNeeded();
+
+    LocalDate getWorkStartDate();
+
+    LocalDate getWorkEndDate();
+
+    String getSupplierName();
+
+    String getSupplierUsername();
+}
@@ -0,0 +1,16 @@
+package com.chiguirongos.backend.repositories.projections;
+
+/**
+ * Key of a work in the volunteer paginated feed. Works are sorted by
+ * feed rank and then by work id.
+ */
+public interface WorkFeedKey {
+
+    Long getWorkId();
+
+    // True if the volunteer has a pending/accepted postulation to the work
+    Boolean getPostulated();
+
+    // 0 if the work matches the volunteer preferences or is postulated, 1 otherwise
+    Integer getFeedRank();
+}
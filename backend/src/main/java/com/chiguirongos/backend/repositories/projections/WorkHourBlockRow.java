@@ -0,0 +1,15 @@
+package com.chiguirongos.backend.repositories.projections;
+
+import java.time.LocalTime;
+
+/**
+ * Hour block of a work, retrieved along with the id of its work.
+ */
+public interface WorkHourBlockRow {
+
+    Long getWorkId();
+
+    LocalTime getHourBlock();
+
+    Integer getWeekDay();
+}
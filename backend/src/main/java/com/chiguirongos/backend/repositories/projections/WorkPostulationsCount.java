@@ -0,0 +1,11 @@
+package com.chiguirongos.backend.repositories.projections;
+
+/**
+ * Number of postulations of a work.
+ */
+public interface WorkPostulationsCount {
+
+    Long getWorkId();
+
+    Long getPostulationsCount();
+}
@@ -0,0 +1,15 @@
+package com.chiguirongos.backend.repositories.projections;
+
+import java.time.LocalDate;
+
+/**
+ * Dates and supplier of a work, enough to refresh the views showing it.
+ */
+public interface WorkSpanRow {
+
+    LocalDate getStartDate();
+
+    LocalDate getEndDate();
+
+    String getSupplierUserName();
+}
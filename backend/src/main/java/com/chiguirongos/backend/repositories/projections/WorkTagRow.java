@@ -0,0 +1,11 @@
+package com.chiguirongos.backend.repositories.projections;
+
+/**
+ * Tag of a work, retrieved along with the id of its work.
+ */
+public interface WorkTagRow {
+
+    Long getWorkId();
+
+    String getTagName();
+}
@@ -0,0 +1,41 @@
+package com.chiguirongos.backend.scheduled;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+
+/**
+ * Task scheduled every 24 hours (and on startup). Computes the weekly hour
+ * mask of the works and users that were stored before the mask existed.
+ */
+@Configuration
+@EnableScheduling
+public class HourMaskBackfill {
+
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private UserRepository users;
+
+    @Transactional
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.DAYS)
+    public void backfillHourMasks() {
+        Set<WorkEntity> worksWithoutMask = works.findWithoutHourMask();
+        for (WorkEntity work : worksWithoutMask)
+            work.refreshHourMask();
+
+        Set<UserEntity> usersWithoutMask = users.findWithoutHourMask();
+        for (UserEntity user : usersWithoutMask)
+            user.refreshHourMask();
+    }
+}
@@ -0,0 +1,56 @@
+package com.chiguirongos.backend.scheduled;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.services.deletion.UserPurgeService;
+
+/**
+ * Task scheduled every 2 seconds. Purges the data of the deleted users and
+ * of the previous role of the users whose role changed. Each run deletes a
+ * limited number of chunks, so the purge never holds locks for long.
+ */
+@Configuration
+@EnableScheduling
+public class UserDataPurgeJob {
+
+    private Logger logger = LogManager.getLogger();
+
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private UserPurgeService purgeService;
+    @Value("${users.purge.chunk-size}")
+    private Integer chunkSize;
+    @Value("${users.purge.chunks-per-run}")
+    private Integer chunksPerRun;
+
+    @Scheduled(fixedDelay = 2, timeUnit = TimeUnit.SECONDS)
+    public void purgePendingUsers() {
+        int chunks = 0;
+        for (Long userId : users.findIdsByPurgePending(PageRequest.of(0, chunksPerRun))) {
+            try {
+                boolean done = false;
+                while (!done && chunks < chunksPerRun) {
+                    done = purgeService.purgeChunk(userId, chunkSize);
+                    chunks++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to purge the data of user " + userId, e);
+                chunks++;
+            }
+
+            if (chunks >= chunksPerRun)
+                return;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.chiguirongos.backend.scheduled;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+
+/**
+ * Repair task scheduled every hour. Recomputes the filled slots and
+ * postulation counters of the works whose values drifted from their real
+ * number of work instances and postulations.
+ */
+@Configuration
+@EnableScheduling
+public class WorkOccupancyReconciler {
+
+    private Logger logger = LogManager.getLogger();
+
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private MonthWorksCache monthWorks;
+
+    @Transactional
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void reconcileCounters() {
+        int repaired = works.reconcileFilledSlots();
+        if (repaired > 0) {
+            logger.warn("Repaired filled slots counter of " + repaired + " works");
+            monthWorks.invalidateAll();
+        }
+
+        repaired = works.reconcilePostulationCounts();
+        if (repaired > 0)
+            logger.warn("Repaired postulation counters of " + repaired + " works");
+    }
+}
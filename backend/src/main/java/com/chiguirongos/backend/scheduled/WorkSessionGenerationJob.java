@@ -0,0 +1,58 @@
+package com.chiguirongos.backend.scheduled;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.services.sessions.WorkSessionGenerationService;
+
+/**
+ * Task scheduled every 5 seconds. Generates the sessions of the work
+ * instances created by accepted postulations. Pending instances are stored
+ * in the database, so they survive restarts. Instances marked as failed by
+ * older versions are moved to virtual sessions.
+ */
+@Configuration
+@EnableScheduling
+public class WorkSessionGenerationJob {
+
+    private Logger logger = LogManager.getLogger();
+
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionGenerationService generationService;
+    @Value("${sessions.generation.batch-size}")
+    private Integer batchSize;
+
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.SECONDS)
+    public void generatePendingSessions() {
+        List<Long> pendingInstances = workInstances.findIdsBySessionsStatus(SessionsGenerationStatusEnum.PENDING,
+                PageRequest.of(0, batchSize));
+
+        for (Long instanceId : pendingInstances) {
+            try {
+                generationService.generateSessions(instanceId);
+            } catch (RuntimeException e) {
+                logger.error("Failed to generate the sessions of work instance " + instanceId, e);
+                generationService.registerFailedAttempt(instanceId);
+            }
+        }
+
+        List<Long> failedInstances = workInstances.findIdsBySessionsStatus(SessionsGenerationStatusEnum.FAILED,
+                PageRequest.of(0, batchSize));
+
+        for (Long instanceId : failedInstances)
+            generationService.recoverFailedInstance(instanceId);
+    }
+}
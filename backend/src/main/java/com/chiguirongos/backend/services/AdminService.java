@@ -1,8 +1,11 @@
 package com.chiguirongos.backend.services;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -18,13 +21,15 @@ import com.chiguirongos.backend.dtos.responsesDTO.UserDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentUserException;
 import com.chiguirongos.backend.exceptions.runtime.UnauthorizedRoleException;
-import com.chiguirongos.backend.repositories.PostulationRepository;
-import com.chiguirongos.backend.repositories.TagRepository;
 import com.chiguirongos.backend.repositories.UserHourBlockRepository;
 import com.chiguirongos.backend.repositories.UserRepository;
-import com.chiguirongos.backend.repositories.WorkInstanceRepository;
 import com.chiguirongos.backend.repositories.WorkRepository;
-import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.repositories.projections.WorkSpanRow;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+import com.chiguirongos.backend.services.cache.TagRegistry;
+import com.chiguirongos.backend.services.cache.ViewVersions;
+import com.chiguirongos.backend.services.deletion.BulkDeletionService;
+import com.chiguirongos.backend.services.volunteer.VolunteerWorkRanker;
 
 import jakarta.validation.Valid;
 
@@ -32,8 +37,6 @@ import com.chiguirongos.backend.models.tags.TagEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.users.UserHourBlocks;
 import com.chiguirongos.backend.models.utils.ModelsConstants;
-import com.chiguirongos.backend.models.works.WorkEntity;
-import com.chiguirongos.backend.models.works.WorkInstanceEntity;
 
 /**
  * Service containing all the logic an functionallities related to the
@@ -49,15 +52,17 @@ public class AdminService {
     @Autowired
     private UserHourBlockRepository hours;
     @Autowired
-    private TagRepository tags;
+    private TagRegistry tagRegistry;
     @Autowired
     private PasswordEncoder encoder;
     @Autowired
-    private WorkInstanceRepository workInstances;
+    private VolunteerWorkRanker ranker;
     @Autowired
-    private WorkSessionRepository workSessions;
+    private MonthWorksCache monthWorks;
     @Autowired
-    private PostulationRepository postulations;
+    private ViewVersions viewVersions;
+    @Autowired
+    private BulkDeletionService deletions;
 
     /**
      * Return a list with all users in system
@@ -65,7 +70,7 @@ public class AdminService {
      * @return A List of users' details
      */
     public List<UserDTO> getUsersByPage(Integer page, Integer pageSize) {
-        List<UserEntity> allUsers = users.findByUserNameNotLike(SecurityConstants.ADMIN_USERNAME,
+        List<UserEntity> allUsers = users.findByUserNameNotLikeAndDeletedFalse(SecurityConstants.ADMIN_USERNAME,
                 PageRequest.of(page, pageSize, Sort.by("userName").ascending()));
 
         if (allUsers.isEmpty())
@@ -109,7 +114,7 @@ public class AdminService {
      * @return Providers in a paginated way
      */
     public List<UserDTO> getProvidersByPage(Integer page, Integer pageSize) {
-        List<UserEntity> allUsers = users.findByUserNameNotLikeAndRoleIn(
+        List<UserEntity> allUsers = users.findByUserNameNotLikeAndRoleInAndDeletedFalse(
                 SecurityConstants.ADMIN_USERNAME,
                 List.of(ModelsConstants.SUPPLIER_ROLE),
                 PageRequest.of(page, pageSize, Sort.by("userName").ascending()));
@@ -139,7 +144,7 @@ public class AdminService {
     @Transactional
     public void editUser(EditUserDetailsDTO details) {
         UserEntity user = users.findByUserName(details.getUserName());
-        if (user == null)
+        if (user == null || user.getDeleted())
             throw new NonExistentUserException();
 
         user.setName(details.getName());
@@ -149,11 +154,24 @@ public class AdminService {
         if (!user.getRole().equals(details.getRole())) {
             switch (details.getRole()) {
                 case ModelsConstants.VOLUNTEER_ROLE:
-                    deleteWorks(user);
+                    if (!user.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
+                        throw new UnauthorizedRoleException();
+
+                    // Data left by a previous volunteer role can't be told apart from the new one later
+                    if (user.getPurgeVolunteerData())
+                        purgeVolunteerDataNow(user);
+
+                    // The works of the supplier are purged in background
+                    user.setPurgePending(true);
+                    user.setPurgeSupplierData(true);
                     setTagsAndWorkHours(user, details);
                     break;
 
                 case ModelsConstants.SUPPLIER_ROLE:
+                    // Works left by a previous supplier role can't be told apart from the new ones later
+                    if (user.getPurgeSupplierData())
+                        purgeSupplierDataNow(user);
+
                     // Remove all user's hour blocks
                     UserHourBlocks[] pervWB = user.getUserHourBlocks()
                             .toArray(new UserHourBlocks[user.getUserHourBlocks().size()]);
@@ -162,14 +180,16 @@ public class AdminService {
                         user.removeUserHourBlock(wb);
                         hours.deleteById(wb.getId());
                     }
+                    user.refreshHourMask();
 
                     // Remove all user's Tags
                     TagEntity[] prevTags = user.getUserTags().toArray(new TagEntity[user.getUserTags().size()]);
                     for (TagEntity pt : prevTags)
                         user.removeTag(pt);
 
-                    deleteVolunteerWorkInstancesAndSessions(user);
-                    postulations.deleteAll(user.getUserPostulations());
+                    // The postulations and work instances of the volunteer are purged in background
+                    user.setPurgePending(true);
+                    user.setPurgeVolunteerData(true);
                     break;
                 default:
                     break;
@@ -181,6 +201,8 @@ public class AdminService {
 
         user.setRole(details.getRole());
         users.save(user);
+        ranker.evictProfile(user);
+        monthWorks.invalidateAll();
     }
 
     /**
@@ -190,11 +212,12 @@ public class AdminService {
      */
     public void changeSuspendedStatus(String username) {
         UserEntity user = users.findByUserName(username);
-        if (user == null)
+        if (user == null || user.getDeleted())
             throw new NonExistentUserException();
 
         user.setSuspended(!user.getSuspended());
         users.save(user);
+        viewVersions.bumpUser(user.getUserName());
     }
 
     /**
@@ -204,48 +227,73 @@ public class AdminService {
      * @param details All details to overwrite the previous tags and hourBlocks
      */
     private void setTagsAndWorkHours(UserEntity user, EditUserDetailsDTO details) {
+        // Only the blocks and tags that changed are deleted and inserted
+        Map<String, UserHourBlockDTO> newBlocks = new LinkedHashMap<>();
+        for (UserHourBlockDTO blockDTO : details.getHourBlocks())
+            newBlocks.putIfAbsent(blockDTO.getWeekDay() + "@" + blockDTO.getHourBlock(), blockDTO);
 
-        UserHourBlocks[] pervWB = user.getUserHourBlocks()
-                .toArray(new UserHourBlocks[user.getUserHourBlocks().size()]);
+        List<UserHourBlocks> removedBlocks = new ArrayList<>();
+        for (UserHourBlocks wb : user.getUserHourBlocks())
+            if (newBlocks.remove(wb.getWeekDay() + "@" + wb.getHourBlock()) == null)
+                removedBlocks.add(wb);
 
-        for (UserHourBlocks wb : pervWB) {
+        for (UserHourBlocks wb : removedBlocks)
             user.removeUserHourBlock(wb);
-            hours.deleteById(wb.getId());
-        }
+        hours.deleteAll(removedBlocks);
 
-        for (UserHourBlockDTO blockDTO : details.getHourBlocks()) {
+        List<UserHourBlocks> addedBlocks = new ArrayList<>();
+        for (UserHourBlockDTO blockDTO : newBlocks.values()) {
             UserHourBlocks newBlock = new UserHourBlocks(blockDTO.getHourBlock(), blockDTO.getWeekDay());
             user.addUserHourBlock(newBlock);
-            hours.save(newBlock);
+            addedBlocks.add(newBlock);
         }
+        hours.saveAll(addedBlocks);
+        user.refreshHourMask();
+
+        Set<String> newTags = details.getUserTags().stream().map((t) -> t.trim()).collect(Collectors.toSet());
+        List<Long> removedTags = new ArrayList<>();
+        for (TagEntity pt : user.getUserTags())
+            if (!newTags.remove(pt.getName()))
+                removedTags.add(pt.getTagId());
+
+        // The join table rows are written directly, leaving the tags untouched
+        if (!removedTags.isEmpty())
+            users.unlinkTags(user.getUserId(), removedTags);
+        if (!newTags.isEmpty())
+            users.linkTags(user.getUserId(), tagRegistry.resolveTagIds(newTags).values());
+    }
 
-        TagEntity[] prevTags = user.getUserTags().toArray(new TagEntity[user.getUserTags().size()]);
-        for (TagEntity pt : prevTags) {
-            if (details.getUserTags().stream().anyMatch(t -> t.trim().equals(pt.getName())))
-                continue;
+    /**
+     * Deletes at once the works left by a previous supplier role of an user
+     * whose purge hasn't finished yet
+     * 
+     * @param user User becoming a supplier again
+     */
+    private void purgeSupplierDataNow(UserEntity user) {
+        for (String volunteer : deletions.deleteWorks(works.findIdsBySupplierId(user)))
+            viewVersions.bumpUser(volunteer);
 
-            user.removeTag(pt);
-            tags.save(pt);
-        }
+        user.setPurgeSupplierData(false);
+    }
 
-        ArrayList<TagEntity> newUserTags = new ArrayList<>();
-        for (String tag : details.getUserTags()) {
-            TagEntity appTag = tags.findByName(tag.trim());
-            if (appTag == null) {
-                appTag = new TagEntity(tag.trim());
-                tags.save(appTag);
-            }
-            newUserTags.add(appTag);
-        }
+    /**
+     * Deletes at once the work instances and postulations left by a previous
+     * volunteer role of an user whose purge hasn't finished yet
+     * 
+     * @param user User becoming a volunteer again
+     */
+    private void purgeVolunteerDataNow(UserEntity user) {
+        List<WorkSpanRow> volunteerWorks = works.findVolunteerWorkSpans(user);
+        deletions.deleteVolunteerWork(user);
+        for (WorkSpanRow work : volunteerWorks)
+            viewVersions.bumpUser(work.getSupplierUserName());
 
-        for (TagEntity tag : newUserTags) {
-            user.addTag(tag);
-            tags.save(tag);
-        }
+        user.setPurgeVolunteerData(false);
     }
 
     /**
-     * Delete an user of system
+     * Delete an user of system. The user is suspended and hidden at once, and
+     * its data is purged in background.
      * 
      * @param username User's username who the admin wants to delete
      */
@@ -253,37 +301,19 @@ public class AdminService {
     public void deleteUser(String username) {
 
         UserEntity user = users.findByUserName(username);
-        if (user == null)
+        if (user == null || user.getDeleted())
             throw new NonExistentUserException();
 
-        switch (user.getRole()) {
-            case ModelsConstants.SUPPLIER_ROLE:
-                deleteWorks(user);
-                break;
-
-            case ModelsConstants.VOLUNTEER_ROLE:
-                // Remove all user's hour blocks
-                UserHourBlocks[] pervWB = user.getUserHourBlocks()
-                        .toArray(new UserHourBlocks[user.getUserHourBlocks().size()]);
-
-                for (UserHourBlocks wb : pervWB) {
-                    user.removeUserHourBlock(wb);
-                    hours.deleteById(wb.getId());
-                }
-
-                // Remove all user's Tags
-                TagEntity[] prevTags = user.getUserTags().toArray(new TagEntity[user.getUserTags().size()]);
-                for (TagEntity pt : prevTags)
-                    user.removeTag(pt);
-
-                deleteVolunteerWorkInstancesAndSessions(user);
-                break;
-
-            default:
-                break;
-        }
+        user.setSuspended(true);
+        user.setDeleted(true);
+        user.setPurgePending(true);
+        users.save(user);
+        ranker.evictProfile(user);
+        viewVersions.bumpUser(user.getUserName());
 
-        users.delete(user);
+        // The works of the supplier leave the feeds before they are purged
+        if (user.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
+            monthWorks.invalidateAll();
     }
 
     /**
@@ -295,46 +325,10 @@ public class AdminService {
     public void resetPassword(@Valid RestartPasswordDTO details) {
 
         UserEntity user = users.findByUserName(details.getUsername().trim());
-        if (user == null)
+        if (user == null || user.getDeleted())
             throw new NonExistentUserException();
 
         user.setPassword(encoder.encode(details.getPassword().trim()));
         users.save(user);
     }
-
-    /**
-     * Deletes a volunteer work sessions and instances
-     * 
-     * @param volunteer Volunteer to delete instances and sessions
-     */
-    private void deleteVolunteerWorkInstancesAndSessions(UserEntity volunteer) {
-        Set<WorkInstanceEntity> volunteerWorksInstances = workInstances.findByVolunteerId(volunteer);
-        for (WorkInstanceEntity workInstance : volunteerWorksInstances) {
-            workSessions.removeByWorkInst(workInstance);
-            workInstances.delete(workInstance);
-        }
-    }
-
-    /**
-     * Deletes all the works of a supplier. This functions does a hard delete
-     * because it also deletes all the postulations and sessions related to it.
-     * 
-     * @param supplier Supplier to delete all its jobs
-     */
-    private void deleteWorks(UserEntity supplier) {
-        if (!supplier.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
-            throw new UnauthorizedRoleException();
-
-        Set<WorkEntity> supplierWorks = works.findBySupplierId(supplier);
-        Set<WorkInstanceEntity> supplierWorksInstances = null;
-
-        for (WorkEntity sw : supplierWorks) {
-            supplierWorksInstances = workInstances.findByWorkId(sw);
-            for (WorkInstanceEntity workInstance : supplierWorksInstances)
-                workSessions.removeByWorkInst(workInstance);
-
-            workInstances.deleteAll(supplierWorksInstances);
-        }
-        works.deleteAll(supplierWorks);
-    }
 }
@@ -36,7 +36,7 @@ public class AuthorizationService {
 
     public UserEntity retrieveUser(String username) throws NonExistentUserException {
         UserEntity user = users.findByUserName(username);
-        if (user == null)
+        if (user == null || user.getDeleted())
             throw new NonExistentUserException();
 
         return user;
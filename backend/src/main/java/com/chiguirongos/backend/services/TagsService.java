@@ -1,13 +1,11 @@
 package com.chiguirongos.backend.services;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.chiguirongos.backend.models.tags.TagEntity;
-import com.chiguirongos.backend.repositories.TagRepository;
+import com.chiguirongos.backend.services.cache.TagRegistry;
 
 /**
  * Service containing all the business logic related to User and Work's tags.
@@ -16,16 +14,14 @@ import com.chiguirongos.backend.repositories.TagRepository;
 public class TagsService {
     
     @Autowired
-    private TagRepository tags;
+    private TagRegistry tagRegistry;
 
     /**
-     * Gets all the tags in the system
+     * Gets the names of all the tags in the system, from the tag registry
      * 
-     * @return All the tags in the system
+     * @return Names of all the tags in the system
      */
-    public List<TagEntity> getTags() {
-        List<TagEntity> allTags = new ArrayList<>();
-        tags.findAll().forEach((t) -> allTags.add(t));
-        return allTags;
+    public List<String> getTags() {
+        return tagRegistry.getTagNames();
     }
 }
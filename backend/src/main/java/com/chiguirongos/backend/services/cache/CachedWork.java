@@ -0,0 +1,154 @@
+package com.chiguirongos.backend.services.cache;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
+import com.chiguirongos.backend.models.utils.WeekHourMask;
+import com.chiguirongos.backend.models.works.WorkEntity;
+
+/**
+ * Immutable snapshot of a work as it is shown in the monthly calendar views.
+ * It only has the information shared by every user, so the same snapshot can
+ * be used to answer any volunteer or supplier.
+ */
+public class CachedWork {
+
+    // Approximate size of a snapshot and each of its parts, used for the cache memory budget
+    private static final long BASE_BYTES = 256;
+    private static final long HOUR_BLOCK_BYTES = 64;
+    private static final long TAG_BYTES = 64;
+
+    private final Long workId;
+    private final String name;
+    private final String description;
+    private final String type;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Long volunteersNeeded;
+    private final Long filledSlots;
+    private final Long supplierId;
+    private final String supplierName;
+    private final String supplierUsername;
+    private final List<WorkHourBlockDTO> hours;
+    private final List<String> tags;
+    private final Set<Long> tagIds;
+    private final WeekHourMask hourMask;
+    private final long estimatedBytes;
+
+    public CachedWork(WorkEntity work) {
+        this.workId = work.getWorkId();
+        this.name = work.getName();
+        this.description = work.getDescription();
+        this.type = work.getType();
+        this.startDate = work.getStartDate();
+        this.endDate = work.getEndDate();
+        this.volunteersNeeded = work.getVolunteersNeeded();
+        this.filledSlots = work.getFilledSlots();
+        this.supplierId = work.getSupplierId().getUserId();
+        this.supplierName = work.getSupplierId().getName();
+        this.supplierUsername = work.getSupplierId().getUserName();
+        this.hours = work.getWorkHourBlocks()
+                .stream()
+                .map((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()))
+                .toList();
+        this.tags = work.getWorkTags()
+                .stream()
+                .map((t) -> t.getName())
+                .toList();
+        this.tagIds = work.getWorkTags()
+                .stream()
+                .map((t) -> t.getTagId())
+                .collect(Collectors.toUnmodifiableSet());
+
+        WeekHourMask mask = work.getHourMask();
+        this.hourMask = new WeekHourMask(mask.getMaskWord0(), mask.getMaskWord1(), mask.getMaskWord2());
+
+        long bytes = BASE_BYTES + HOUR_BLOCK_BYTES * hours.size() + TAG_BYTES * tags.size();
+        for (String text : List.of(name, supplierName, supplierUsername))
+            bytes += 2l * text.length();
+        if (description != null)
+            bytes += 2l * description.length();
+        for (String tag : tags)
+            bytes += 2l * tag.length();
+        this.estimatedBytes = bytes;
+    }
+
+    /**
+     * Checks if the volunteer sees the work in its feed
+     * 
+     * @param isPostulated True if the volunteer has an active postulation to the
+     *                     work
+     * @return True if the work still has free slots or the volunteer is
+     *         postulated to it
+     */
+    public Boolean isVisibleTo(Boolean isPostulated) {
+        return isPostulated || filledSlots < volunteersNeeded;
+    }
+
+    public Long getWorkId() {
+        return workId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public Long getVolunteersNeeded() {
+        return volunteersNeeded;
+    }
+
+    public Long getFilledSlots() {
+        return filledSlots;
+    }
+
+    public Long getSupplierId() {
+        return supplierId;
+    }
+
+    public String getSupplierName() {
+        return supplierName;
+    }
+
+    public String getSupplierUsername() {
+        return supplierUsername;
+    }
+
+    public List<WorkHourBlockDTO> getHours() {
+        return hours;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public Set<Long> getTagIds() {
+        return tagIds;
+    }
+
+    public WeekHourMask getHourMask() {
+        return hourMask;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+}
@@ -0,0 +1,182 @@
+package com.chiguirongos.backend.services.cache;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.chiguirongos.backend.dtos.responsesDTO.CacheStatsDTO;
+import com.chiguirongos.backend.repositories.WorkRepository;
+
+/**
+ * Bounded cache of the works of each month, shared by the volunteer and
+ * supplier calendar views. The least recently used months are evicted when
+ * the cache has too many months or exceeds its memory budget.
+ * 
+ * Every change to a work, or to its filled slots, must invalidate the months
+ * the work is in. Invalidations also change the ETags of those months views.
+ */
+@Service
+public class MonthWorksCache {
+
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private ViewVersions versions;
+    @Value("${works.cache.max-months}")
+    private Integer maxMonths;
+    @Value("${works.cache.max-bytes}")
+    private Long maxBytes;
+
+    /**
+     * Works of a month and their estimated size
+     */
+    private static class CachedMonth {
+        private final List<CachedWork> works;
+        private final long bytes;
+
+        private CachedMonth(List<CachedWork> works, long bytes) {
+            this.works = works;
+            this.bytes = bytes;
+        }
+    }
+
+    // Months sorted from least to most recently used
+    private final LinkedHashMap<YearMonth, CachedMonth> months = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes = 0;
+
+    // Incremented on every invalidation, so loads that raced with it aren't stored
+    private long generation = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * Gets the works that have at least a session in a month, loading them if
+     * they aren't cached.
+     * 
+     * @param month Month to get the works from
+     * @return Unmodifiable list with the works of the month
+     */
+    public List<CachedWork> getMonthWorks(YearMonth month) {
+        long loadGeneration;
+        synchronized (this) {
+            CachedMonth cached = months.get(month);
+            if (cached != null) {
+                hits++;
+                return cached.works;
+            }
+
+            misses++;
+            loadGeneration = generation;
+        }
+
+        List<CachedWork> monthWorks = works.findWorksBetweenDates(month.atDay(1), month.atEndOfMonth())
+                .stream()
+                .map((w) -> new CachedWork(w))
+                .toList();
+
+        long bytes = monthWorks.stream().mapToLong((w) -> w.getEstimatedBytes()).sum();
+        synchronized (this) {
+            if (loadGeneration == generation && bytes <= maxBytes && !months.containsKey(month)) {
+                months.put(month, new CachedMonth(monthWorks, bytes));
+                usedBytes += bytes;
+                evictExtraMonths();
+            }
+        }
+
+        return monthWorks;
+    }
+
+    /**
+     * Invalidates every month between two dates. If there is an active
+     * transaction the months are invalidated again after it commits, so
+     * no request can cache the data it is changing.
+     * 
+     * @param start Start date of the changed work
+     * @param end   End date of the changed work
+     */
+    public void invalidateBetween(LocalDate start, LocalDate end) {
+        YearMonth first = YearMonth.from(start);
+        YearMonth last = YearMonth.from(end);
+
+        evictBetween(first, last);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictBetween(first, last);
+                }
+            });
+
+        versions.bumpMonths(first, last);
+    }
+
+    /**
+     * Invalidates every cached month. Used when a change affects works that
+     * aren't known beforehand.
+     */
+    public void invalidateAll() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+
+        versions.bumpAll();
+    }
+
+    /**
+     * Gets the usage metrics of the cache
+     * 
+     * @return DTO with the cache metrics
+     */
+    public synchronized CacheStatsDTO getStats() {
+        return new CacheStatsDTO(hits, misses, evictions, invalidations, (long) months.size(), usedBytes,
+                maxBytes);
+    }
+
+    private synchronized void evictBetween(YearMonth first, YearMonth last) {
+        generation++;
+        invalidations++;
+
+        Iterator<Map.Entry<YearMonth, CachedMonth>> it = months.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<YearMonth, CachedMonth> entry = it.next();
+            if (entry.getKey().isBefore(first) || entry.getKey().isAfter(last))
+                continue;
+
+            usedBytes -= entry.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    private synchronized void clear() {
+        generation++;
+        invalidations++;
+        months.clear();
+        usedBytes = 0;
+    }
+
+    private void evictExtraMonths() {
+        Iterator<CachedMonth> it = months.values().iterator();
+        while (it.hasNext() && (usedBytes > maxBytes || months.size() > maxMonths)) {
+            usedBytes -= it.next().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.chiguirongos.backend.services.cache;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.models.tags.TagEntity;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Process-wide registry of the tags of the system, mapping their names to
+ * their ids. Tags are never deleted, so the registry only grows, and it is
+ * reloaded periodically to learn the tags created by other instances of the
+ * application. Missing tags are created together with a single insert that
+ * ignores the names created meanwhile by other requests, in its own
+ * transaction, and are only registered once it commits. Every tag must be
+ * created through the registry.
+ */
+@Service
+public class TagRegistry {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${tags.registry.refresh-seconds}")
+    private Long refreshSeconds;
+
+    // Must match the allocation size of the tag ids sequence used by Hibernate
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private final TransactionTemplate newTransaction;
+    private final Map<String, Long> tagIds = new ConcurrentHashMap<>();
+    private volatile long nextLoadMillis = 0;
+
+    public TagRegistry(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Retrieves the tags with some names, creating the missing ones. Once the
+     * registry knows all the names, no query is sent to the database.
+     * 
+     * @param names Names of the tags, surrounding spaces are ignored
+     * @return Tags of the current persistence context, by trimmed name
+     */
+    public Map<String, TagEntity> resolveTags(Collection<String> names) {
+        Map<String, TagEntity> tags = new HashMap<>();
+        resolveTagIds(names).forEach((name, id) -> tags.put(name, entityManager.getReference(TagEntity.class, id)));
+        return tags;
+    }
+
+    /**
+     * Retrieves the ids of the tags with some names, creating the missing
+     * ones. Once the registry knows all the names, no query is sent to the
+     * database.
+     * 
+     * @param names Names of the tags, surrounding spaces are ignored
+     * @return Ids of the tags, by trimmed name
+     * @throws IllegalArgumentException If a name is blank or longer than a tag
+     *                                  name can be
+     */
+    public Map<String, Long> resolveTagIds(Collection<String> names) {
+        Set<String> trimmedNames = names.stream().map((n) -> n.trim()).collect(Collectors.toSet());
+        for (String name : trimmedNames)
+            if (name.isEmpty() || name.length() > TagEntity.MAX_NAME_LENGTH)
+                throw new IllegalArgumentException(
+                        "Tags must have between 1 and " + TagEntity.MAX_NAME_LENGTH + " characters");
+
+        ensureLoaded();
+
+        List<String> missing = trimmedNames.stream().filter((n) -> !tagIds.containsKey(n)).toList();
+        if (!missing.isEmpty()) {
+            Map<String, Long> created = newTransaction.execute((status) -> upsertTags(missing));
+            tagIds.putAll(created);
+        }
+
+        Map<String, Long> ids = new HashMap<>();
+        for (String name : trimmedNames)
+            ids.put(name, tagIds.get(name));
+
+        return ids;
+    }
+
+    /**
+     * Retrieves the names of all the tags of the system
+     * 
+     * @return Sorted list with the names of all the tags
+     */
+    public List<String> getTagNames() {
+        ensureLoaded();
+        return tagIds.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Loads all the tags of the database the first time the registry is used,
+     * and again once the refresh period has passed
+     */
+    private void ensureLoaded() {
+        if (System.currentTimeMillis() < nextLoadMillis)
+            return;
+
+        synchronized (this) {
+            if (System.currentTimeMillis() < nextLoadMillis)
+                return;
+
+            jdbcTemplate.query("select tag_id, name from tag_entity",
+                    (ResultSet rs) -> {
+                        tagIds.put(rs.getString("name"), rs.getLong("tag_id"));
+                    });
+            nextLoadMillis = System.currentTimeMillis() + refreshSeconds * 1000;
+        }
+    }
+
+    /**
+     * Inserts the tags with some names that don't exist yet, and retrieves the
+     * ids of all of them. Every value of the tags sequence reserves the same
+     * block of ids Hibernate would reserve with it, so the ids never collide
+     * with the ones Hibernate assigns.
+     * 
+     * @param names Names of the tags
+     * @return Ids of the tags, by name
+     */
+    private Map<String, Long> upsertTags(List<String> names) {
+        // One extra block, as the first value of a new sequence only reserves one id
+        int blocks = (names.size() + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        List<Long> hiValues = jdbcTemplate.queryForList(
+                "select nextval('tag_entity_seq') from generate_series(1, ?)", Long.class, blocks + 1);
+
+        List<Long> newIds = new ArrayList<>();
+        for (Long hiValue : hiValues)
+            for (long id = Math.max(1, hiValue - ID_ALLOCATION_SIZE + 1); id <= hiValue; id++)
+                if (newIds.size() < names.size())
+                    newIds.add(id);
+
+        return jdbcTemplate.execute((ConnectionCallback<Map<String, Long>>) (connection) -> {
+            Array namesArray = connection.createArrayOf("text", names.toArray());
+
+            try (PreparedStatement insert = connection.prepareStatement("""
+                    insert into tag_entity (tag_id, name)
+                    select i, n
+                    from unnest(?, ?) as t(i, n)
+                    on conflict (name) do nothing
+                    """)) {
+                insert.setArray(1, connection.createArrayOf("bigint", newIds.toArray()));
+                insert.setArray(2, namesArray);
+                insert.executeUpdate();
+            }
+
+            Map<String, Long> ids = new HashMap<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "select tag_id, name from tag_entity where name = any(?)")) {
+                select.setArray(1, namesArray);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next())
+                        ids.put(rs.getString("name"), rs.getLong("tag_id"));
+                }
+            }
+
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.chiguirongos.backend.services.cache;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Change counters of the calendar views, used to build their ETags. A view
+ * depends on the counter of its month, the counter of the user requesting it,
+ * or both, so checking if a view changed doesn't need any query.
+ * 
+ * Counters live in memory, so every ETag also has the startup time of the
+ * server to make the ETags from a previous run stale.
+ */
+@Service
+public class ViewVersions {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final Map<YearMonth, Long> monthVersions = new ConcurrentHashMap<>();
+    private final Map<String, Long> userVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Marks as changed the views of a user
+     * 
+     * @param username Username of the user
+     */
+    public void bumpUser(String username) {
+        runNowAndAfterCommit(() -> userVersions.merge(username, 1l, Long::sum));
+    }
+
+    /**
+     * Marks as changed the views of every month between two months, both
+     * included
+     * 
+     * @param first First changed month
+     * @param last  Last changed month
+     */
+    public void bumpMonths(YearMonth first, YearMonth last) {
+        runNowAndAfterCommit(() -> {
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1))
+                monthVersions.merge(month, 1l, Long::sum);
+        });
+    }
+
+    /**
+     * Marks as changed every view
+     */
+    public void bumpAll() {
+        runNowAndAfterCommit(() -> globalVersion.incrementAndGet());
+    }
+
+    /**
+     * Builds the ETag of a view that depends on a month and the user requesting
+     * it
+     * 
+     * @param username Username of the user
+     * @param month    Month of the view
+     * @return ETag of the view
+     */
+    public String userMonthTag(String username, YearMonth month) {
+        return "\"" + epoch + "-" + globalVersion.get() + "-m" + monthVersions.getOrDefault(month, 0l) + "-u"
+                + userVersions.getOrDefault(username, 0l) + "\"";
+    }
+
+    /**
+     * Checks if the If-None-Match header of a request matches an ETag
+     * 
+     * @param ifNoneMatch Value of the If-None-Match header, may be null
+     * @param etag        Current ETag of the view
+     * @return True if the client already has the current version of the view
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+
+            if (tag.equals("*") || tag.equals(etag))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Runs a change now and, if there is an active transaction, again after it
+     * commits, so a view built with the data being changed is never tagged with
+     * the new version.
+     * 
+     * @param change Change to run
+     */
+    private void runNowAndAfterCommit(Runnable change) {
+        change.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+    }
+}
@@ -0,0 +1,101 @@
+package com.chiguirongos.backend.services.deletion;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.repositories.UserHourBlockRepository;
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.repositories.WorkHourBlockRepository;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.repositories.WorkSessionRepository;
+
+/**
+ * Service that deletes works and users along with everything referencing
+ * them. Every table is cleaned with a single statement, in dependency order,
+ * so no entity is loaded no matter how many sessions there are. Entities of
+ * the current persistence context aren't updated, so they must not be saved
+ * again after being deleted.
+ */
+@Service
+public class BulkDeletionService {
+
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionRepository workSessions;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private WorkHourBlockRepository workHours;
+    @Autowired
+    private UserHourBlockRepository userHours;
+
+    /**
+     * Deletes some works with their sessions, instances, postulations, hour
+     * blocks and tag links
+     * 
+     * @param workIds Ids of the works
+     * @return Usernames of the volunteers that had an instance of the works
+     */
+    @Transactional
+    public Set<String> deleteWorks(Collection<Long> workIds) {
+        if (workIds.isEmpty())
+            return Set.of();
+
+        Set<String> volunteers = workInstances.findVolunteerUserNamesByWorkIdIn(workIds);
+
+        workSessions.deleteAllByWorkIdIn(workIds);
+        workInstances.deleteAllByWorkIdIn(workIds);
+        postulations.deleteAllByWorkIdIn(workIds);
+        workHours.deleteAllByWorkIdIn(workIds);
+        works.unlinkAllTags(workIds);
+        works.deleteAllByWorkIdIn(workIds);
+        return volunteers;
+    }
+
+    /**
+     * Deletes the work instances, sessions and postulations of a volunteer,
+     * releasing the slots and postulation counters of their works
+     * 
+     * @param volunteer Volunteer to delete the instances and postulations of
+     */
+    @Transactional
+    public void deleteVolunteerWork(UserEntity volunteer) {
+        works.releaseVolunteerSlots(volunteer);
+        workSessions.deleteAllByVolunteerId(volunteer.getUserId());
+        workInstances.deleteAllByVolunteerId(volunteer.getUserId());
+
+        works.releaseVolunteerPostulations(volunteer.getUserId());
+        postulations.deleteAllByVolunteerId(volunteer.getUserId());
+    }
+
+    /**
+     * Deletes an user with its works, work instances, sessions, postulations,
+     * hour blocks and tag links
+     * 
+     * @param user User to delete
+     * @return Usernames of the volunteers that had an instance of the user
+     *         works
+     */
+    @Transactional
+    public Set<String> deleteUser(UserEntity user) {
+        Set<String> volunteers = deleteWorks(works.findIdsBySupplierId(user));
+        deleteVolunteerWork(user);
+
+        userHours.deleteAllByUserId(user.getUserId());
+        users.unlinkAllTags(user.getUserId());
+        users.deleteByUserId(user.getUserId());
+        return volunteers;
+    }
+}
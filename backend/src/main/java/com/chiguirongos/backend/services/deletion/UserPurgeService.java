@@ -0,0 +1,215 @@
+package com.chiguirongos.backend.services.deletion;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.chiguirongos.backend.dtos.responsesDTO.UserPurgeDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.repositories.projections.WorkSpanRow;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+import com.chiguirongos.backend.services.cache.ViewVersions;
+
+/**
+ * Service that purges in background the data of deleted users and the data
+ * left by the previous role of the users whose role changed. The data is
+ * deleted in chunks of bounded size, each one in a short transaction. Every
+ * chunk starts over from the first step, so rows created meanwhile, like new
+ * postulations to the works being purged, are purged too.
+ */
+@Service
+public class UserPurgeService {
+
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionRepository workSessions;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private BulkDeletionService deletions;
+    @Autowired
+    private MonthWorksCache monthWorks;
+    @Autowired
+    private ViewVersions viewVersions;
+
+    private final Map<Long, Progress> progress = new ConcurrentHashMap<>();
+
+    /**
+     * Deletes the next chunk of the data of an user waiting to be purged. The
+     * steps are run in dependency order, and a step only starts once the
+     * previous one has nothing left to delete.
+     * 
+     * @param userId    Id of the user
+     * @param chunkSize Maximum number of rows deleted by each step
+     * @return True if the purge of the user is complete
+     */
+    @Transactional
+    public boolean purgeChunk(Long userId, int chunkSize) {
+        UserEntity user = users.findById(userId).orElse(null);
+        if (user == null || !user.getPurgePending()) {
+            progress.remove(userId);
+            return true;
+        }
+
+        Progress userProgress = progress.computeIfAbsent(userId, (id) -> new Progress());
+
+        // The role may have changed back since the data was left, so the pending data is recorded apart
+        boolean supplierData = user.getDeleted() || user.getPurgeSupplierData();
+        boolean volunteerData = user.getDeleted() || user.getPurgeVolunteerData();
+
+        if (supplierData) {
+            if (!runStep(userProgress, UserPurgeStageEnum.WORK_SESSIONS, chunkSize,
+                    () -> workSessions.deleteChunkBySupplierId(userId, chunkSize)))
+                return false;
+
+            if (!runStep(userProgress, UserPurgeStageEnum.WORK_INSTANCES, chunkSize,
+                    () -> deleteSupplierInstancesChunk(user, chunkSize)))
+                return false;
+
+            if (!runStep(userProgress, UserPurgeStageEnum.WORK_POSTULATIONS, chunkSize,
+                    () -> postulations.deleteChunkBySupplierId(userId, chunkSize)))
+                return false;
+
+            if (!runStep(userProgress, UserPurgeStageEnum.WORKS, chunkSize,
+                    () -> deleteWorksChunk(user, chunkSize)))
+                return false;
+        }
+
+        if (volunteerData) {
+            if (!runStep(userProgress, UserPurgeStageEnum.VOLUNTEER_SESSIONS, chunkSize,
+                    () -> workSessions.deleteChunkByVolunteerId(userId, chunkSize)))
+                return false;
+
+            // Without sessions, the instances and postulations of a volunteer are few
+            runStep(userProgress, UserPurgeStageEnum.VOLUNTEER_WORK, chunkSize, () -> {
+                deleteVolunteerWork(user);
+                return 0;
+            });
+        }
+
+        if (user.getDeleted()) {
+            runStep(userProgress, UserPurgeStageEnum.USER, chunkSize, () -> {
+                deletions.deleteUser(user);
+                return 1;
+            });
+        } else {
+            // The user may have changed again while being purged
+            users.finishPurge(userId, user.getRole(), user.getPurgeSupplierData(), user.getPurgeVolunteerData());
+        }
+
+        progress.remove(userId);
+        return true;
+    }
+
+    /**
+     * Retrieves the users whose data is waiting to be purged, along with the
+     * progress of their purge
+     * 
+     * @return Progress of the pending purges, oldest first
+     */
+    public List<UserPurgeDTO> getPendingPurges() {
+        return users.findPendingPurges()
+                .stream()
+                .map((row) -> {
+                    Progress userProgress = progress.get(row.getUserId());
+                    return new UserPurgeDTO(
+                            row.getUserName(),
+                            row.getRole(),
+                            row.getDeleted(),
+                            userProgress == null ? UserPurgeStageEnum.PENDING.getValue()
+                                    : userProgress.stage.getValue(),
+                            userProgress == null ? 0l : userProgress.purgedRows.get());
+                }).toList();
+    }
+
+    /**
+     * Runs a step of a purge, recording its progress
+     * 
+     * @param userProgress Progress of the purge
+     * @param stage        Step to run
+     * @param chunkSize    Maximum number of rows deleted by the step
+     * @param step         Deletes the rows of the step, returning how many
+     * @return True if the step has nothing left to delete
+     */
+    private boolean runStep(Progress userProgress, UserPurgeStageEnum stage, int chunkSize, IntSupplier step) {
+        userProgress.stage = stage;
+        int deleted = step.getAsInt();
+        userProgress.purgedRows.addAndGet(deleted);
+        return deleted < chunkSize;
+    }
+
+    /**
+     * Deletes a chunk of the instances of the works of a supplier, refreshing
+     * the views of their volunteers
+     * 
+     * @param supplier  Creator of the works
+     * @param chunkSize Maximum number of instances to delete
+     * @return Number of deleted instances
+     */
+    private int deleteSupplierInstancesChunk(UserEntity supplier, int chunkSize) {
+        for (String volunteer : workInstances.findVolunteerUserNamesBySupplier(supplier))
+            viewVersions.bumpUser(volunteer);
+
+        return workInstances.deleteChunkBySupplierId(supplier.getUserId(), chunkSize);
+    }
+
+    /**
+     * Deletes the instances and postulations of a volunteer, refreshing the
+     * months and suppliers of the works whose slots and postulation counters
+     * are released
+     * 
+     * @param volunteer Volunteer of the instances and postulations
+     */
+    private void deleteVolunteerWork(UserEntity volunteer) {
+        List<WorkSpanRow> volunteerWorks = works.findVolunteerWorkSpans(volunteer);
+        deletions.deleteVolunteerWork(volunteer);
+
+        for (WorkSpanRow work : volunteerWorks) {
+            monthWorks.invalidateBetween(work.getStartDate(), work.getEndDate());
+            viewVersions.bumpUser(work.getSupplierUserName());
+        }
+    }
+
+    /**
+     * Deletes a chunk of the works of a supplier, along with their hour blocks
+     * and tag links
+     * 
+     * @param supplier  Creator of the works
+     * @param chunkSize Maximum number of works to delete
+     * @return Number of deleted works
+     */
+    private int deleteWorksChunk(UserEntity supplier, int chunkSize) {
+        List<Long> workIds = works.findIdsBySupplierId(supplier, PageRequest.of(0, chunkSize));
+        if (workIds.isEmpty())
+            return 0;
+
+        deletions.deleteWorks(workIds);
+        monthWorks.invalidateAll();
+        return workIds.size();
+    }
+
+    /**
+     * Progress of the purge of an user, kept while this server purges it
+     */
+    private static class Progress {
+        private volatile UserPurgeStageEnum stage = UserPurgeStageEnum.PENDING;
+        private final AtomicLong purgedRows = new AtomicLong();
+    }
+}
@@ -0,0 +1,26 @@
+package com.chiguirongos.backend.services.deletion;
+
+/**
+ * Enumerator value representing the step an user purge
+ * is currently running
+ */
+public enum UserPurgeStageEnum {
+    PENDING("PENDING"),
+    WORK_SESSIONS("WORK_SESSIONS"),
+    WORK_INSTANCES("WORK_INSTANCES"),
+    WORK_POSTULATIONS("WORK_POSTULATIONS"),
+    WORKS("WORKS"),
+    VOLUNTEER_SESSIONS("VOLUNTEER_SESSIONS"),
+    VOLUNTEER_WORK("VOLUNTEER_WORK"),
+    USER("USER");
+
+    private final String value;
+
+    UserPurgeStageEnum(final String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
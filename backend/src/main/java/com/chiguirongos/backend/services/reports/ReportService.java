@@ -24,7 +24,7 @@ import com.chiguirongos.backend.models.utils.reports.ReportGenerator;
 import com.chiguirongos.backend.models.works.WorkEntity;
 import com.chiguirongos.backend.models.works.WorkSessionEntity;
 import com.chiguirongos.backend.repositories.PostulationRepository;
-import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.services.sessions.WorkSessionResolver;
 
 /**
  * Service containing all the functionalities to create
@@ -34,7 +34,7 @@ import com.chiguirongos.backend.repositories.WorkSessionRepository;
 public class ReportService {
 
     @Autowired
-    private WorkSessionRepository workSessions;
+    private WorkSessionResolver workSessions;
     @Autowired
     private PostulationRepository postulations;
     @Value("${reports.tmp.path}")
@@ -111,7 +111,7 @@ public class ReportService {
     private void generateSupplierSessionsReport(List<String> targetUsers, LocalDate start, LocalDate end,
             ReportGenerator reportGenerator) {
 
-        Set<WorkSessionEntity> allSessions = workSessions
+        List<WorkSessionEntity> allSessions = workSessions
                 .findSupplierWorkSessionBetweenDatesOrderByDateAndTime(
                         targetUsers,
                         start,
@@ -161,7 +161,7 @@ public class ReportService {
     private void generateAdminSessionsReport(List<String> targetUsers, LocalDate start, LocalDate end,
             ReportGenerator reportGenerator) {
 
-        Set<WorkSessionEntity> allSessions = workSessions
+        List<WorkSessionEntity> allSessions = workSessions
                 .findSupplierWorkSessionBetweenDatesOrderByDateAndTime(
                         targetUsers,
                         start,
@@ -218,7 +218,7 @@ public class ReportService {
     private void generateVolunteerSessionsReport(List<String> targetUsers, LocalDate start, LocalDate end,
             ReportGenerator reportGenerator) {
 
-        Set<WorkSessionEntity> allSessions = workSessions
+        List<WorkSessionEntity> allSessions = workSessions
                 .findVolunteerWorkSessionsBetweenDatesOrderByDateAndTime(
                         targetUsers,
                         start,
@@ -0,0 +1,153 @@
+package com.chiguirongos.backend.services.sessions;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+
+/**
+ * Service that stores many work sessions at once, bypassing the persistence
+ * context. Sessions are streamed with the Postgres COPY protocol, or sent as
+ * JDBC batch inserts when the connection does not support it. Both run in
+ * the current transaction.
+ */
+@Service
+public class WorkSessionBulkWriter {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Must match the allocation size of the session ids sequence used by Hibernate
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final String COPY_SESSIONS = """
+            copy work_session_entity (id, status, session_week_day, session_date, session_time, work_inst_id)
+            from stdin with (format csv)
+            """;
+    private static final String INSERT_SESSION = """
+            insert into work_session_entity (id, status, session_week_day, session_date, session_time, work_inst_id)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+
+    /**
+     * Stores a collection of new work sessions, assigning them their ids
+     * 
+     * @param sessions Sessions to store
+     * @return Number of stored sessions
+     */
+    public int writeSessions(Collection<WorkSessionEntity> sessions) {
+        return writeSessions(sessions, true);
+    }
+
+    /**
+     * Stores a collection of new work sessions, assigning them their ids
+     * 
+     * @param sessions  Sessions to store
+     * @param allowCopy If false, batch inserts are used even if the connection
+     *                  supports COPY
+     * @return Number of stored sessions
+     */
+    int writeSessions(Collection<WorkSessionEntity> sessions, boolean allowCopy) {
+        if (sessions.isEmpty())
+            return 0;
+
+        List<WorkSessionEntity> newSessions = new ArrayList<>(sessions);
+        assignIds(newSessions);
+
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) (connection) -> {
+            if (allowCopy && connection.isWrapperFor(PGConnection.class))
+                copySessions(connection.unwrap(PGConnection.class), newSessions);
+            else
+                insertSessions(connection, newSessions);
+
+            return newSessions.size();
+        });
+    }
+
+    /**
+     * Assigns ids to the sessions from the sessions sequence. Every sequence
+     * value reserves the same block of ids Hibernate would reserve with it, so
+     * the ids never collide with the ones Hibernate assigns.
+     * 
+     * @param sessions Sessions to assign the ids to
+     */
+    private void assignIds(List<WorkSessionEntity> sessions) {
+        // One extra block, as the first value of a new sequence only reserves one id
+        int blocks = (sessions.size() + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        List<Long> hiValues = jdbcTemplate.queryForList(
+                "select nextval('work_session_entity_seq') from generate_series(1, ?)", Long.class, blocks + 1);
+
+        int next = 0;
+        for (Long hiValue : hiValues) {
+            for (long id = Math.max(1, hiValue - ID_ALLOCATION_SIZE + 1); id <= hiValue; id++) {
+                if (next == sessions.size())
+                    return;
+
+                sessions.get(next++).setId(id);
+            }
+        }
+    }
+
+    /**
+     * Streams the sessions to the database with the COPY protocol
+     * 
+     * @param connection Postgres connection of the current transaction
+     * @param sessions   Sessions to store, with their ids
+     */
+    private void copySessions(PGConnection connection, List<WorkSessionEntity> sessions) throws SQLException {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new PGCopyOutputStream(connection, COPY_SESSIONS), StandardCharsets.UTF_8))) {
+
+            for (WorkSessionEntity session : sessions) {
+                writer.write(session.getId() + "," + session.getStatus().getValue() + ","
+                        + session.getSessionWeekDay() + "," + session.getSessionDate() + ","
+                        + session.getSessionTime() + "," + session.getWorkInst().getInstanceId() + "\n");
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to copy the work sessions", e);
+        }
+    }
+
+    /**
+     * Stores the sessions with JDBC batch inserts
+     * 
+     * @param connection Connection of the current transaction
+     * @param sessions   Sessions to store, with their ids
+     */
+    private void insertSessions(Connection connection, List<WorkSessionEntity> sessions) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SESSION)) {
+            int batched = 0;
+            for (WorkSessionEntity session : sessions) {
+                statement.setLong(1, session.getId());
+                statement.setString(2, session.getStatus().getValue());
+                statement.setInt(3, session.getSessionWeekDay());
+                statement.setDate(4, Date.valueOf(session.getSessionDate()));
+                statement.setTime(5, Time.valueOf(session.getSessionTime()));
+                statement.setLong(6, session.getWorkInst().getInstanceId());
+                statement.addBatch();
+
+                if (++batched % ID_ALLOCATION_SIZE == 0)
+                    statement.executeBatch();
+            }
+
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.chiguirongos.backend.services.sessions;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.services.cache.ViewVersions;
+
+/**
+ * Service that generates the sessions of the work instances waiting for
+ * them. Each instance is generated in its own transaction, so a failure
+ * only affects that instance and can be retried. Instances that keep failing
+ * fall back to virtual sessions.
+ */
+@Service
+public class WorkSessionGenerationService {
+
+    private Logger logger = LogManager.getLogger();
+
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionRepository workSessions;
+    @Autowired
+    private WorkSessionPlanner planner;
+    @Autowired
+    private WorkSessionBulkWriter bulkWriter;
+    @Autowired
+    private ViewVersions viewVersions;
+    @Value("${sessions.generation.max-attempts}")
+    private Integer maxAttempts;
+
+    /**
+     * Generates the sessions of a work instance waiting for them. Sessions left
+     * by a previous attempt are deleted first, so generating them again never
+     * duplicates sessions. Instances with virtual sessions store none of them.
+     * 
+     * @param instanceId Id of the work instance
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void generateSessions(Long instanceId) {
+        WorkInstanceEntity instance = workInstances.findById(instanceId).orElse(null);
+        if (instance == null || !instance.getSessionsStatus().equals(SessionsGenerationStatusEnum.PENDING))
+            return;
+
+        workSessions.deleteAllByWorkInst(instance);
+        if (planner.isVirtual(instance.getWorkId())) {
+            instance.setSessionsStatus(SessionsGenerationStatusEnum.VIRTUAL);
+        } else {
+            bulkWriter.writeSessions(planner.planSessions(instance));
+            instance.setSessionsStatus(SessionsGenerationStatusEnum.GENERATED);
+        }
+
+        workInstances.save(instance);
+        viewVersions.bumpUser(instance.getVolunteerId().getUserName());
+    }
+
+    /**
+     * Registers a failed attempt to generate the sessions of a work instance.
+     * The instance is retried until it reaches the maximum number of attempts,
+     * and then its sessions are left virtual, so they are still planned on the
+     * fly.
+     * 
+     * @param instanceId Id of the work instance
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void registerFailedAttempt(Long instanceId) {
+        WorkInstanceEntity instance = workInstances.findById(instanceId).orElse(null);
+        if (instance == null || !instance.getSessionsStatus().equals(SessionsGenerationStatusEnum.PENDING))
+            return;
+
+        instance.setSessionsAttempts(instance.getSessionsAttempts() + 1);
+        if (instance.getSessionsAttempts() >= maxAttempts) {
+            logger.error("Giving up generating the sessions of work instance " + instanceId + " after "
+                    + instance.getSessionsAttempts() + " attempts, its sessions are left virtual");
+            useVirtualSessions(instance);
+        }
+
+        workInstances.save(instance);
+    }
+
+    /**
+     * Moves to virtual sessions a work instance marked as failed, which only
+     * older versions did
+     * 
+     * @param instanceId Id of the work instance
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recoverFailedInstance(Long instanceId) {
+        WorkInstanceEntity instance = workInstances.findById(instanceId).orElse(null);
+        if (instance == null || !instance.getSessionsStatus().equals(SessionsGenerationStatusEnum.FAILED))
+            return;
+
+        useVirtualSessions(instance);
+        workInstances.save(instance);
+    }
+
+    /**
+     * Deletes the sessions a failed attempt may have left and marks the sessions
+     * of a work instance as virtual
+     * 
+     * @param instance Work instance
+     */
+    private void useVirtualSessions(WorkInstanceEntity instance) {
+        workSessions.deleteAllByWorkInst(instance);
+        instance.setSessionsStatus(SessionsGenerationStatusEnum.VIRTUAL);
+        viewVersions.bumpUser(instance.getVolunteerId().getUserName());
+    }
+}
@@ -0,0 +1,109 @@
+package com.chiguirongos.backend.services.sessions;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.models.works.WorkHourBlocks;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+
+/**
+ * Service that computes the sessions a work instance must have,
+ * based on its dates and the hour blocks of its work.
+ */
+@Service
+public class WorkSessionPlanner {
+
+    @Value("${sessions.recurring.virtual}")
+    private Boolean virtualRecurring;
+
+    /**
+     * Checks if the sessions of a work are computed on the fly instead of
+     * being stored. Only the sessions whose status changed are stored.
+     * 
+     * @param work Work to check
+     * @return True if the sessions of the work are virtual
+     */
+    public boolean isVirtual(WorkEntity work) {
+        return virtualRecurring && work.getType().equals(ModelsConstants.WORK_TYPE_RECURRING);
+    }
+
+    /**
+     * Creates all the sessions of a work instance, without saving them
+     * 
+     * @param workInst Work instance to create the sessions of
+     * @return Set of all the work sessions for the work instance between its
+     *         start and end dates
+     */
+    public Set<WorkSessionEntity> planSessions(WorkInstanceEntity workInst) {
+        return createSessions(workInst.getStartDate(), workInst.getEndDate(), workInst);
+    }
+
+    /**
+     * Creates the sessions of a recurring work instance between two dates,
+     * without saving them
+     * 
+     * @param workInst Recurring work instance to create the sessions of
+     * @param from     Start date of the sessions
+     * @param to       End date of the sessions
+     * @return Set of the work sessions for the work instance between the two
+     *         dates that are inside the instance dates
+     */
+    public Set<WorkSessionEntity> planSessionsBetween(WorkInstanceEntity workInst, LocalDate from, LocalDate to) {
+        LocalDate start = from.isAfter(workInst.getStartDate()) ? from : workInst.getStartDate();
+        LocalDate end = to.isBefore(workInst.getEndDate()) ? to : workInst.getEndDate();
+        if (start.isAfter(end))
+            return new LinkedHashSet<WorkSessionEntity>();
+
+        return createSessions(start, end, workInst);
+    }
+
+    /**
+     * Creates all the sessions of the work instance between two dates
+     * 
+     * @param from Start of the sessions
+     * @param to   End of the sessions
+     * @return Set of all the work sessions for the work instance between the two
+     *         dates
+     */
+    private Set<WorkSessionEntity> createSessions(LocalDate from, LocalDate to, WorkInstanceEntity workInst) {
+
+        LinkedHashSet<WorkSessionEntity> sessions = new LinkedHashSet<WorkSessionEntity>();
+
+        if (workInst.getWorkId().getType().equals(ModelsConstants.WORK_TYPE_SESSION)) {
+            for (WorkHourBlocks hBlocks : workInst.getWorkId().getWorkHourBlocks()) {
+                sessions.add(new WorkSessionEntity(workInst.getWorkId().getStartDate().getDayOfWeek().getValue() % 7,
+                        workInst.getWorkId().getStartDate(),
+                        hBlocks.getHourBlock(), workInst));
+            }
+
+            return sessions;
+        }
+
+        // Every week day appears once in each week long window starting at from
+        LocalDate curWeek = from;
+        while (curWeek.isBefore(to) || curWeek.isEqual(to)) {
+            for (WorkHourBlocks hBlocks : workInst.getWorkId().getWorkHourBlocks()) {
+
+                // Week days go from 0 (sunday) to 6 (saturday)
+                DayOfWeek dayOfWeek = DayOfWeek.of(hBlocks.getWeekDay() == 0 ? 7 : hBlocks.getWeekDay());
+                LocalDate auxDate = curWeek.with(TemporalAdjusters.nextOrSame(dayOfWeek));
+                if (auxDate.isBefore(to) || auxDate.isEqual(to)) {
+                    sessions.add(new WorkSessionEntity(hBlocks.getWeekDay(), auxDate,
+                            hBlocks.getHourBlock(), workInst));
+                }
+            }
+            curWeek = curWeek.plusWeeks(1);
+        }
+
+        return sessions;
+    }
+}
@@ -0,0 +1,417 @@
+package com.chiguirongos.backend.services.sessions;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
+import com.chiguirongos.backend.models.utils.WorkSessionStatusEnum;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkSessionRepository;
+
+/**
+ * Service that retrieves the sessions of the work instances, merging the
+ * stored sessions with the ones computed on the fly for the instances with
+ * virtual sessions. Only the virtual sessions whose status changed are stored.
+ * 
+ * Virtual sessions get a negative id that encodes their work instance, the
+ * days since the instance start date and the session hour.
+ */
+@Service
+public class WorkSessionResolver {
+
+    @Autowired
+    private WorkSessionRepository workSessions;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionPlanner planner;
+
+    private static final int VIRTUAL_ID_SHIFT = 24;
+    private static final long VIRTUAL_ID_MASK = (1l << VIRTUAL_ID_SHIFT) - 1;
+    private static final Comparator<WorkSessionEntity> REPORT_ORDER = Comparator
+            .comparing((WorkSessionEntity ws) -> ws.getWorkInst().getWorkId().getName())
+            .thenComparing(WorkSessionEntity::getSessionDate)
+            .thenComparing(WorkSessionEntity::getSessionTime);
+
+    /**
+     * Finds all the work sessions of a volunteer between two dates
+     * 
+     * @param volunteer Volunteer to get sessions from
+     * @param start     Start date of the range of work sessions to get
+     * @param end       End date of the range of work sessions to get
+     * @return List of work sessions from a volunteer between two dates
+     */
+    public List<WorkSessionEntity> findVolunteerWorkSessionsBetweenDates(UserEntity volunteer, LocalDate start,
+            LocalDate end) {
+
+        return merge(workSessions.findVolunteerWorkSessionsBetweenDates(volunteer, start, end),
+                workInstances.findVolunteerInstancesBetweenDates(volunteer, SessionsGenerationStatusEnum.VIRTUAL,
+                        start, end),
+                start, end);
+    }
+
+    /**
+     * Retrieves all the work sessions from a work in certain date and time
+     * 
+     * @param workId Work to get sessions from
+     * @param date   Date from the sessions to get
+     * @param time   Time from the sessions to get
+     * @return List of work sessions within the date and time parameters
+     */
+    public List<WorkSessionEntity> findWorkSessionsInBlock(Long workId, LocalDate date, LocalTime time) {
+        List<WorkSessionEntity> sessions = merge(workSessions.findWorkSessionsInBlock(workId, date, time),
+                workInstances.findWorkInstancesAtDate(workId, SessionsGenerationStatusEnum.VIRTUAL, date),
+                date, date);
+
+        return sessions
+                .stream()
+                .filter((ws) -> ws.getSessionTime().equals(time))
+                .toList();
+    }
+
+    /**
+     * Finds all the work sessions of some volunteers between two dates, sorted
+     * by work name, session date and session time
+     * 
+     * @param volunteers Usernames of the volunteers to get sessions from
+     * @param start      Start date of the range of work sessions to get
+     * @param end        End date of the range of work sessions to get
+     * @return Sorted list of work sessions from the volunteers between two dates
+     */
+    public List<WorkSessionEntity> findVolunteerWorkSessionsBetweenDatesOrderByDateAndTime(List<String> volunteers,
+            LocalDate start, LocalDate end) {
+
+        List<WorkSessionEntity> sessions = merge(
+                workSessions.findVolunteerWorkSessionsBetweenDatesOrderByDateAndTime(volunteers, start, end),
+                workInstances.findVolunteersInstancesBetweenDates(volunteers, SessionsGenerationStatusEnum.VIRTUAL,
+                        start, end),
+                start, end);
+
+        sessions.sort(REPORT_ORDER);
+        return sessions;
+    }
+
+    /**
+     * Finds all the work sessions of the works of some suppliers between two
+     * dates, sorted by work name, session date and session time
+     * 
+     * @param suppliers Usernames of the suppliers to get sessions from
+     * @param start     Start date of the range of work sessions to get
+     * @param end       End date of the range of work sessions to get
+     * @return Sorted list of work sessions related to the suppliers between two
+     *         dates
+     */
+    public List<WorkSessionEntity> findSupplierWorkSessionBetweenDatesOrderByDateAndTime(List<String> suppliers,
+            LocalDate start, LocalDate end) {
+
+        List<WorkSessionEntity> sessions = merge(
+                workSessions.findSupplierWorkSessionBetweenDatesOrderByDateAndTime(suppliers, start, end),
+                workInstances.findSuppliersInstancesBetweenDates(suppliers, SessionsGenerationStatusEnum.VIRTUAL,
+                        start, end),
+                start, end);
+
+        sessions.sort(REPORT_ORDER);
+        return sessions;
+    }
+
+    /**
+     * Retrieves a work session, stored or virtual, by its id
+     * 
+     * @param sessionId Id of the session
+     * @return The work session, if it exists
+     */
+    public Optional<WorkSessionEntity> findById(Long sessionId) {
+        if (sessionId >= 0)
+            return workSessions.findById(sessionId);
+
+        WorkInstanceEntity instance = workInstances.findById(virtualInstanceId(sessionId)).orElse(null);
+        if (instance == null || !instance.getSessionsStatus().equals(SessionsGenerationStatusEnum.VIRTUAL))
+            return Optional.empty();
+
+        LocalDate date = virtualDate(instance, sessionId);
+        LocalTime time = virtualTime(sessionId);
+
+        Optional<WorkSessionEntity> stored = workSessions.findByWorkInstAndSessionDateAndSessionTime(instance, date,
+                time);
+        if (stored.isPresent())
+            return stored;
+
+        return planner.planSessionsBetween(instance, date, date)
+                .stream()
+                .filter((ws) -> ws.getSessionTime().equals(time))
+                .findFirst()
+                .map((ws) -> {
+                    ws.setId(sessionId);
+                    return ws;
+                });
+    }
+
+    /**
+     * Retrieves some work sessions, stored or virtual, by their ids. The stored
+     * sessions are loaded in a single query, with their works, suppliers and
+     * volunteers. The instances of the virtual sessions are loaded together,
+     * along with the sessions already stored for them, and each instance is
+     * planned once.
+     * 
+     * @param sessionIds Ids of the sessions
+     * @return The sessions that exist, by the id they were requested with
+     */
+    public Map<Long, WorkSessionEntity> findAllById(Collection<Long> sessionIds) {
+        Map<Long, WorkSessionEntity> found = new HashMap<>();
+        List<Long> storedIds = sessionIds.stream().filter((id) -> id >= 0).toList();
+        if (!storedIds.isEmpty())
+            for (WorkSessionEntity ws : workSessions.findWithWorkByIdIn(storedIds))
+                found.put(ws.getId(), ws);
+
+        Map<Long, List<Long>> virtualIds = sessionIds.stream()
+                .filter((id) -> id < 0)
+                .distinct()
+                .collect(Collectors.groupingBy((id) -> virtualInstanceId(id)));
+        if (virtualIds.isEmpty())
+            return found;
+
+        List<WorkInstanceEntity> instances = new ArrayList<>();
+        for (WorkInstanceEntity instance : workInstances.findAllById(virtualIds.keySet()))
+            if (instance.getSessionsStatus().equals(SessionsGenerationStatusEnum.VIRTUAL))
+                instances.add(instance);
+
+        if (instances.isEmpty())
+            return found;
+
+        // Each instance is planned only between the dates requested from it
+        Map<String, WorkSessionEntity> sessionsByKey = new HashMap<>();
+        LocalDate start = LocalDate.MAX;
+        LocalDate end = LocalDate.MIN;
+        for (WorkInstanceEntity instance : instances) {
+            List<LocalDate> dates = virtualIds.get(instance.getInstanceId())
+                    .stream()
+                    .map((id) -> virtualDate(instance, id))
+                    .sorted()
+                    .toList();
+
+            LocalDate first = dates.get(0);
+            LocalDate last = dates.get(dates.size() - 1);
+            for (WorkSessionEntity ws : planner.planSessionsBetween(instance, first, last))
+                sessionsByKey.put(sessionKey(ws), ws);
+
+            start = first.isBefore(start) ? first : start;
+            end = last.isAfter(end) ? last : end;
+        }
+
+        // Stored sessions replace the virtual ones of their instance, date and time
+        for (WorkSessionEntity ws : workSessions.findByWorkInstInBetweenDates(instances, start, end))
+            sessionsByKey.put(sessionKey(ws), ws);
+
+        for (WorkInstanceEntity instance : instances) {
+            for (Long sessionId : virtualIds.get(instance.getInstanceId())) {
+                WorkSessionEntity ws = sessionsByKey.get(instance.getInstanceId() + "/"
+                        + virtualDate(instance, sessionId) + "/" + virtualTime(sessionId));
+                if (ws == null)
+                    continue;
+
+                if (ws.getId() == null || ws.getId() < 0)
+                    ws.setId(sessionId);
+                found.put(sessionId, ws);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Changes the status of many work sessions. The stored sessions are
+     * updated with a single statement, so their loaded entities keep the old
+     * status, and the virtual ones are stored together. Virtual sessions get
+     * the id of their stored row.
+     * 
+     * @param sessions  Sessions to change the status of
+     * @param newStatus New status of the sessions
+     */
+    public void saveStatuses(Collection<WorkSessionEntity> sessions, WorkSessionStatusEnum newStatus) {
+        List<Long> storedIds = new ArrayList<>();
+        List<WorkSessionEntity> virtualSessions = new ArrayList<>();
+        for (WorkSessionEntity ws : sessions) {
+            if (ws.getId() != null && ws.getId() >= 0)
+                storedIds.add(ws.getId());
+            else
+                virtualSessions.add(ws);
+        }
+
+        if (!storedIds.isEmpty())
+            workSessions.updateStatusByIdIn(storedIds, newStatus);
+        storeVirtualSessions(virtualSessions, newStatus);
+    }
+
+    /**
+     * Changes the status of a work session. Virtual sessions are stored the
+     * first time their status changes.
+     * 
+     * @param session   Session to change the status of
+     * @param newStatus New status of the session
+     * @return The saved session
+     */
+    public WorkSessionEntity saveStatus(WorkSessionEntity session, WorkSessionStatusEnum newStatus) {
+        if (session.getId() != null && session.getId() < 0)
+            return storeVirtualSessions(List.of(session), newStatus).get(0);
+
+        session.setStatus(newStatus);
+        return workSessions.save(session);
+    }
+
+    /**
+     * Stores virtual sessions with a new status. Their work instances are
+     * locked first, so concurrent changes of the same virtual session update
+     * the row stored by the first one instead of inserting it twice. Must be
+     * called inside a transaction.
+     * 
+     * @param virtualSessions Virtual sessions to store
+     * @param newStatus       New status of the sessions
+     * @return Stored sessions, in the same order, with their ids
+     */
+    private List<WorkSessionEntity> storeVirtualSessions(List<WorkSessionEntity> virtualSessions,
+            WorkSessionStatusEnum newStatus) {
+        if (virtualSessions.isEmpty())
+            return new ArrayList<>();
+
+        Map<Long, WorkInstanceEntity> instances = new HashMap<>();
+        LocalDate start = LocalDate.MAX;
+        LocalDate end = LocalDate.MIN;
+        for (WorkSessionEntity ws : virtualSessions) {
+            instances.putIfAbsent(ws.getWorkInst().getInstanceId(), ws.getWorkInst());
+            start = ws.getSessionDate().isBefore(start) ? ws.getSessionDate() : start;
+            end = ws.getSessionDate().isAfter(end) ? ws.getSessionDate() : end;
+        }
+
+        // Sessions stored by a concurrent change are visible once the lock is taken
+        workInstances.lockByInstanceIdIn(instances.keySet());
+        Map<String, WorkSessionEntity> storedByKey = new HashMap<>();
+        for (WorkSessionEntity ws : workSessions.findByWorkInstInBetweenDates(instances.values(), start, end))
+            storedByKey.put(sessionKey(ws), ws);
+
+        List<WorkSessionEntity> saved = new ArrayList<>();
+        List<WorkSessionEntity> newSessions = new ArrayList<>();
+        for (WorkSessionEntity ws : virtualSessions) {
+            WorkSessionEntity stored = storedByKey.get(sessionKey(ws));
+            ws.setStatus(newStatus);
+            if (stored == null) {
+                ws.setId(null);
+                storedByKey.put(sessionKey(ws), ws);
+                newSessions.add(ws);
+                saved.add(ws);
+            } else {
+                stored.setStatus(newStatus);
+                ws.setId(stored.getId());
+                saved.add(stored);
+            }
+        }
+
+        workSessions.saveAll(newSessions);
+        return saved;
+    }
+
+    /**
+     * Merges stored sessions with the virtual sessions of some work instances
+     * between two dates. A stored session replaces the virtual session of its
+     * instance at the same date and time.
+     * 
+     * @param stored    Stored sessions
+     * @param instances Work instances with virtual sessions
+     * @param start     Start date of the virtual sessions
+     * @param end       End date of the virtual sessions
+     * @return List with the stored and virtual sessions
+     */
+    private List<WorkSessionEntity> merge(Collection<WorkSessionEntity> stored,
+            Collection<WorkInstanceEntity> instances, LocalDate start, LocalDate end) {
+
+        List<WorkSessionEntity> sessions = new ArrayList<>(stored);
+        if (instances.isEmpty())
+            return sessions;
+
+        Set<String> storedKeys = new HashSet<>();
+        for (WorkSessionEntity ws : stored)
+            storedKeys.add(sessionKey(ws));
+
+        for (WorkInstanceEntity instance : instances) {
+            for (WorkSessionEntity ws : planner.planSessionsBetween(instance, start, end)) {
+                if (storedKeys.contains(sessionKey(ws)))
+                    continue;
+
+                ws.setId(virtualId(instance, ws.getSessionDate(), ws.getSessionTime()));
+                sessions.add(ws);
+            }
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Builds the negative id of a virtual session
+     * 
+     * @param instance Work instance of the session
+     * @param date     Date of the session
+     * @param time     Time of the session
+     * @return Virtual session id
+     */
+    private static Long virtualId(WorkInstanceEntity instance, LocalDate date, LocalTime time) {
+        long days = ChronoUnit.DAYS.between(instance.getStartDate(), date);
+        return -((instance.getInstanceId() << VIRTUAL_ID_SHIFT) | (days * 24 + time.getHour()));
+    }
+
+    /**
+     * Gets the id of the work instance encoded in a virtual session id
+     * 
+     * @param sessionId Virtual session id
+     * @return Id of the work instance of the session
+     */
+    private static Long virtualInstanceId(Long sessionId) {
+        return -sessionId >> VIRTUAL_ID_SHIFT;
+    }
+
+    /**
+     * Gets the date encoded in a virtual session id
+     * 
+     * @param instance  Work instance of the session
+     * @param sessionId Virtual session id
+     * @return Date of the session
+     */
+    private static LocalDate virtualDate(WorkInstanceEntity instance, Long sessionId) {
+        return instance.getStartDate().plusDays((-sessionId & VIRTUAL_ID_MASK) / 24);
+    }
+
+    /**
+     * Gets the time encoded in a virtual session id
+     * 
+     * @param sessionId Virtual session id
+     * @return Time of the session
+     */
+    private static LocalTime virtualTime(Long sessionId) {
+        return LocalTime.of((int) ((-sessionId & VIRTUAL_ID_MASK) % 24), 0);
+    }
+
+    /**
+     * Builds a key identifying a session by its work instance, date and time
+     * 
+     * @param ws Work session
+     * @return Key of the session
+     */
+    private static String sessionKey(WorkSessionEntity ws) {
+        return ws.getWorkInst().getInstanceId() + "/" + ws.getSessionDate() + "/" + ws.getSessionTime();
+    }
+}
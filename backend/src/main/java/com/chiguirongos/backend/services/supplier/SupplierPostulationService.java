@@ -1,11 +1,12 @@
 package com.chiguirongos.backend.services.supplier;
 
-import java.time.DayOfWeek;
-import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.PostulationDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentPostulationException;
@@ -22,18 +24,20 @@ import com.chiguirongos.backend.exceptions.runtime.NonExistentWorkException;
 import com.chiguirongos.backend.exceptions.runtime.SuspendedUserException;
 import com.chiguirongos.backend.exceptions.runtime.UnauthorizedRoleException;
 import com.chiguirongos.backend.exceptions.runtime.UnauthorizedUserAccessException;
+import com.chiguirongos.backend.exceptions.runtime.WorkFullException;
 import com.chiguirongos.backend.models.postulations.PostulationEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.utils.ModelsConstants;
 import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
 import com.chiguirongos.backend.models.works.WorkEntity;
-import com.chiguirongos.backend.models.works.WorkHourBlocks;
 import com.chiguirongos.backend.models.works.WorkInstanceEntity;
-import com.chiguirongos.backend.models.works.WorkSessionEntity;
 import com.chiguirongos.backend.repositories.PostulationRepository;
 import com.chiguirongos.backend.repositories.WorkInstanceRepository;
 import com.chiguirongos.backend.repositories.WorkRepository;
-import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.repositories.projections.WorkHourBlockRow;
+import com.chiguirongos.backend.repositories.projections.WorkTagRow;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+import com.chiguirongos.backend.services.cache.ViewVersions;
 
 /**
  * Service used to handle all the postulations operation
@@ -49,7 +53,12 @@ public class SupplierPostulationService {
     @Autowired
     private WorkInstanceRepository workInstances;
     @Autowired
-    private WorkSessionRepository workSessions;
+    private MonthWorksCache monthWorks;
+    @Autowired
+    private ViewVersions viewVersions;
+
+    // Maximum number of postulations in a batch
+    private static final int MAX_BATCH_POSTULATIONS = 100;
 
     /**
      * Rejects a volunteer postulation
@@ -57,6 +66,7 @@ public class SupplierPostulationService {
      * @param supplierUsername User who wants to reject a postulation
      * @param postulationId    ID of the postulation to reject
      */
+    @Transactional
     public void rejectUserPostulation(UserEntity supplier, Long postulationId)
             throws NonExistentUserException, SuspendedUserException, NonExistentPostulationException {
         PostulationEntity postulation = postulations.findById(postulationId).orElse(null);
@@ -76,6 +86,9 @@ public class SupplierPostulationService {
         postulation.setStatus(PostulationStatusEnum.REJECTED);
 
         postulations.save(postulation);
+        works.addPostulationCounts(postulation.getWork().getWorkId(), -1l, 0l, 1l);
+        viewVersions.bumpUser(postulation.getVolunteer().getUserName());
+        viewVersions.bumpUser(supplier.getUserName());
     }
 
     /**
@@ -105,37 +118,143 @@ public class SupplierPostulationService {
         // if (LocalDate.now().isAfter(postulation.getStartDate()))
         // postulation.setStartDate(LocalDate.now());
 
+        // Takes the slot first, so a full work is never overbooked by concurrent accepts
+        if (works.incrementFilledSlots(postulation.getWork().getWorkId()) == 0)
+            throw new WorkFullException();
+
         postulation.setStatus(PostulationStatusEnum.ACCEPTED);
 
-        if (isWorkLastPostulation(postulation.getWork()))
-            postulations.saveAll(rejectExtraPendingPostulations(postulation.getWork(), postulation));
+        long rejectedCount = 0;
+        if (works.isWorkFull(postulation.getWork().getWorkId()))
+            for (PostulationEntity rejected : postulations
+                    .saveAll(rejectExtraPendingPostulations(postulation.getWork()))) {
+                viewVersions.bumpUser(rejected.getVolunteer().getUserName());
+                rejectedCount++;
+            }
+
+        works.addPostulationCounts(postulation.getWork().getWorkId(), -1l - rejectedCount, 1l, rejectedCount);
 
         createInstanceFromPostulation(postulation);
         postulations.save(postulation);
+        monthWorks.invalidateBetween(postulation.getWork().getStartDate(), postulation.getWork().getEndDate());
+        viewVersions.bumpUser(postulation.getVolunteer().getUserName());
+        viewVersions.bumpUser(supplier.getUserName());
     }
 
     /**
-     * Checks if a work next postulation to accept is the last one available
+     * Accepts a batch of volunteer postulations in a single transaction. The
+     * postulations of each work are accepted in the batch order while the work
+     * has free slots, and the rest are rejected. Works left full also reject
+     * their other pending postulations. All the work instances are inserted
+     * together at the end, and their sessions are generated in background.
      * 
-     * @param work Work to check
-     * @return true if a work is only able to accept a single postulation. false
-     *         otherwise
+     * @param supplier       Supplier of the works
+     * @param postulationIds IDs of the postulations to accept
+     * @return Result of every postulation, in the same order as the batch
      */
-    private boolean isWorkLastPostulation(WorkEntity work) {
-        Long curInstances = workInstances.countByWorkId(work);
-        return work.getVolunteersNeeded().equals(curInstances + 1l);
+    @Transactional
+    public List<BatchItemResultDTO> acceptUserPostulationsBatch(UserEntity supplier, List<Long> postulationIds) {
+        if (!supplier.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
+            throw new UnauthorizedRoleException();
+
+        if (postulationIds.size() > MAX_BATCH_POSTULATIONS)
+            throw new IllegalArgumentException(
+                    "A batch can't have more than " + MAX_BATCH_POSTULATIONS + " postulations");
+
+        Map<Long, PostulationEntity> batchPostulations = postulations
+                .findWithWorkByPostulationIdIn(postulationIds.stream().filter((id) -> id != null).toList())
+                .stream()
+                .collect(Collectors.toMap((p) -> p.getPostulationId(), (p) -> p));
+
+        /**
+         * Positions of the valid postulations of each work, in batch order. Works
+         * are sorted by id so concurrent batches always lock their rows in the
+         * same order and can't deadlock.
+         */
+        BatchItemResultDTO[] results = new BatchItemResultDTO[postulationIds.size()];
+        Map<Long, List<Integer>> workIndexes = new TreeMap<>();
+        Set<Long> seenIds = new HashSet<>();
+        for (int i = 0; i < postulationIds.size(); i++) {
+            PostulationEntity postulation = batchPostulations.get(postulationIds.get(i));
+            if (postulation == null)
+                results[i] = BatchItemResultDTO.failed(i, "Postulation doesn't exists");
+            else if (!seenIds.add(postulation.getPostulationId()))
+                results[i] = BatchItemResultDTO.failed(i, "The batch already has that postulation");
+            else if (!postulation.getWork().getSupplierId().getUserId().equals(supplier.getUserId()))
+                results[i] = BatchItemResultDTO.failed(i, "The postulation isn't from one of your works");
+            else if (!postulation.getStatus().equals(PostulationStatusEnum.PENDING))
+                results[i] = BatchItemResultDTO.failed(i, "The postulation status is not pending");
+            else
+                workIndexes.computeIfAbsent(postulation.getWork().getWorkId(), (id) -> new ArrayList<>()).add(i);
+        }
+
+        List<PostulationEntity> changedPostulations = new ArrayList<>();
+        List<WorkInstanceEntity> newInstances = new ArrayList<>();
+        for (List<Integer> indexes : workIndexes.values()) {
+            WorkEntity work = batchPostulations.get(postulationIds.get(indexes.get(0))).getWork();
+
+            // The work row stays locked until commit, so its free slots can't change meanwhile
+            Long lockedFreeSlots = works.lockFreeSlots(work.getWorkId());
+            if (lockedFreeSlots == null)
+                throw new NonExistentWorkException();
+
+            long freeSlots = Math.max(0l, lockedFreeSlots);
+            long toAccept = Math.min(freeSlots, indexes.size());
+            if (toAccept > 0)
+                works.addFilledSlots(work.getWorkId(), toAccept);
+
+            for (int j = 0; j < indexes.size(); j++) {
+                int index = indexes.get(j);
+                PostulationEntity postulation = batchPostulations.get(postulationIds.get(index));
+                if (j < toAccept) {
+                    postulation.setStatus(PostulationStatusEnum.ACCEPTED);
+
+                    newInstances.add(new WorkInstanceEntity(postulation.getStartDate(), postulation.getEndDate(),
+                            work, postulation.getVolunteer()));
+                } else {
+                    postulation.setStatus(PostulationStatusEnum.REJECTED);
+                }
+
+                changedPostulations.add(postulation);
+                results[index] = BatchItemResultDTO.succeeded(index, postulation.getPostulationId(),
+                        postulation.getStatus().name());
+            }
+
+            long rejectedCount = indexes.size() - toAccept;
+            if (toAccept == freeSlots) {
+                List<PostulationEntity> extraRejected = rejectExtraPendingPostulations(work);
+                changedPostulations.addAll(extraRejected);
+                rejectedCount += extraRejected.size();
+            }
+
+            works.addPostulationCounts(work.getWorkId(), -toAccept - rejectedCount, toAccept, rejectedCount);
+
+            if (toAccept > 0)
+                monthWorks.invalidateBetween(work.getStartDate(), work.getEndDate());
+        }
+
+        postulations.saveAll(changedPostulations);
+        workInstances.saveAll(newInstances);
+
+        if (!changedPostulations.isEmpty()) {
+            viewVersions.bumpUser(supplier.getUserName());
+            changedPostulations.stream()
+                    .map((p) -> p.getVolunteer().getUserName())
+                    .distinct()
+                    .forEach((v) -> viewVersions.bumpUser(v));
+        }
+
+        return List.of(results);
     }
 
     /**
      * Rejects all the pendings postulation of a work after a last postulation is
      * accepted.
      * 
-     * @param work            Work to reject its postulation
-     * @param lastPostulation Last postulation accepted
+     * @param work Work to reject its postulation
      * @return List of all the postulations rejected
      */
-    private List<PostulationEntity> rejectExtraPendingPostulations(WorkEntity work,
-            PostulationEntity lastPostulation) {
+    private List<PostulationEntity> rejectExtraPendingPostulations(WorkEntity work) {
 
         Stream<PostulationEntity> toReject = work.getWorkPostulations().stream()
                 .filter((p) -> p.getStatus().equals(PostulationStatusEnum.PENDING));
@@ -188,37 +307,39 @@ public class SupplierPostulationService {
     }
 
     /**
-     * Get all the works that have a pending postulation in a paginated fashion
+     * Get all the works that have a pending postulation in a paginated fashion.
+     * Pages are made of distinct works, and the hour blocks and tags of the
+     * works of the page are loaded with one query each.
      * 
      * @param supplier Supplier to get works from
-     * @param page     Page of the postulations
-     * @param pageSize Page size of the postulations
+     * @param page     Page of the works
+     * @param pageSize Page size of the works
      * @return A list of works with pending postulations from the supplier
      */
     public List<WorkDTO> getPaginatedWorksWithPendingPostulations(UserEntity supplier, Integer page,
             Integer pageSize) {
-        List<PostulationEntity> pendingPostulations = postulations.findByWorkSupplierIdAndStatus(supplier,
-                PostulationStatusEnum.PENDING, PageRequest.of(page, pageSize));
+        List<WorkEntity> pendingWorks = works.findSupplierWorksWithPendingPostulations(supplier,
+                PageRequest.of(page, pageSize));
 
-        List<WorkEntity> distinctWork = pendingPostulations
-                .stream()
-                .map((p) -> p.getWork())
-                .distinct()
-                .toList();
+        if (pendingWorks.isEmpty())
+            return new ArrayList<>();
 
-        List<WorkDTO> responses = new ArrayList<>();
+        List<Long> workIds = pendingWorks.stream().map((w) -> w.getWorkId()).toList();
 
-        for (WorkEntity work : distinctWork) {
-            List<WorkHourBlockDTO> blocks = work.getWorkHourBlocks()
-                    .stream()
-                    .map((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()))
-                    .toList();
+        Map<Long, List<WorkHourBlockDTO>> worksBlocks = works.findHourBlocksByWorkIdIn(workIds)
+                .stream()
+                .collect(Collectors.groupingBy(WorkHourBlockRow::getWorkId,
+                        Collectors.mapping((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()),
+                                Collectors.toList())));
 
-            List<String> tags = work.getWorkTags()
-                    .stream()
-                    .map((t) -> t.getName())
-                    .toList();
+        Map<Long, List<String>> worksTags = works.findTagNamesByWorkIdIn(workIds)
+                .stream()
+                .collect(Collectors.groupingBy(WorkTagRow::getWorkId,
+                        Collectors.mapping(WorkTagRow::getTagName, Collectors.toList())));
 
+        List<WorkDTO> responses = new ArrayList<>();
+
+        for (WorkEntity work : pendingWorks) {
             responses.add(WorkDTO.builder()
                     .id(work.getWorkId())
                     .name(work.getName())
@@ -227,10 +348,11 @@ public class SupplierPostulationService {
                     .startDate(work.getStartDate())
                     .endDate(work.getEndDate())
                     .volunteersNeeded(work.getVolunteersNeeded())
-                    .tags(tags)
-                    .hours(blocks)
+                    .tags(worksTags.getOrDefault(work.getWorkId(), List.of()))
+                    .hours(worksBlocks.getOrDefault(work.getWorkId(), List.of()))
                     .supplierName(supplier.getName())
                     .supplierUsername(supplier.getUserName())
+                    .pendingPostulationsCount(work.getPendingPostulations())
                     .build());
         }
 
@@ -238,62 +360,16 @@ public class SupplierPostulationService {
     }
 
     /**
-     * Creates a work instance and its sessions from a postulation AÑADIDO
+     * Creates a work instance from a postulation. Its sessions are generated
+     * in background by the session generation job.
      * 
-     * @param postulation Postulation to create work instance and sessions from
+     * @param postulation Postulation to create work instance from
      */
-    @Transactional
     private void createInstanceFromPostulation(PostulationEntity postulation) {
 
         WorkInstanceEntity workInstance = new WorkInstanceEntity(postulation.getStartDate(), postulation.getEndDate(),
                 postulation.getWork(), postulation.getVolunteer());
 
-        Set<WorkSessionEntity> sessions = createSessions(postulation.getStartDate(),
-                postulation.getEndDate(), workInstance);
-
         workInstances.save(workInstance);
-        workSessions.saveAll(sessions);
-    }
-
-    /**
-     * Creates all the sessions of the work instance between two dates AÑADIDO
-     * 
-     * @param from Start of the sessions
-     * @param to   End of the sessions
-     * @return Set of all the work sessions for the work instance between the two
-     *         dates
-     */
-    private Set<WorkSessionEntity> createSessions(LocalDate from, LocalDate to, WorkInstanceEntity workInst) {
-
-        LinkedHashSet<WorkSessionEntity> sessions = new LinkedHashSet<WorkSessionEntity>();
-
-        if (workInst.getWorkId().getType().equals(ModelsConstants.WORK_TYPE_SESSION)) {
-            for (WorkHourBlocks hBlocks : workInst.getWorkId().getWorkHourBlocks()) {
-                sessions.add(new WorkSessionEntity(workInst.getWorkId().getStartDate().getDayOfWeek().getValue() % 7,
-                        workInst.getWorkId().getStartDate(),
-                        hBlocks.getHourBlock(), workInst));
-            }
-
-            return sessions;
-        }
-
-        LocalDate curWeek = from.with(DayOfWeek.MONDAY);
-        while (curWeek.isBefore(to) || curWeek.isEqual(to)) {
-            for (WorkHourBlocks hBlocks : workInst.getWorkId().getWorkHourBlocks()) {
-
-                LocalDate auxDate = curWeek.plusDays((hBlocks.getWeekDay() - 1) % 7);
-                Integer auxWeekDay = (auxDate.getDayOfWeek().getValue()) % 7;
-                if ((auxDate.isAfter(from) || auxDate.isEqual(from)) &&
-                        (auxDate.isBefore(to) || auxDate.isEqual(to))
-                        && (hBlocks.getWeekDay().equals(auxWeekDay))) {
-
-                    sessions.add(new WorkSessionEntity(hBlocks.getWeekDay(), auxDate,
-                            hBlocks.getHourBlock(), workInst));
-                }
-            }
-            curWeek = curWeek.plusWeeks(1);
-        }
-
-        return sessions;
     }
 }
@@ -2,33 +2,46 @@ package com.chiguirongos.backend.services.supplier;
 
 import java.security.InvalidParameterException;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.CreateWorkDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.DeleteWorkDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.EditWorkDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentWorkException;
+import com.chiguirongos.backend.exceptions.runtime.UnauthorizedRoleException;
 import com.chiguirongos.backend.models.tags.TagEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.utils.ModelsConstants;
-import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.models.utils.WeekDayEnum;
 import com.chiguirongos.backend.models.works.WorkEntity;
 import com.chiguirongos.backend.models.works.WorkHourBlocks;
-import com.chiguirongos.backend.models.works.WorkInstanceEntity;
-import com.chiguirongos.backend.models.works.WorkSessionEntity;
-import com.chiguirongos.backend.repositories.TagRepository;
 import com.chiguirongos.backend.repositories.WorkHourBlockRepository;
-import com.chiguirongos.backend.repositories.WorkInstanceRepository;
 import com.chiguirongos.backend.repositories.WorkRepository;
-import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.services.cache.CachedWork;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+import com.chiguirongos.backend.services.cache.TagRegistry;
+import com.chiguirongos.backend.services.cache.ViewVersions;
+import com.chiguirongos.backend.services.deletion.BulkDeletionService;
+import com.chiguirongos.backend.services.utils.WorkCsvParser;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 /**
  * Service containing all the logic and functionalities related to the
@@ -40,13 +53,20 @@ public class SupplierWorkService {
     @Autowired
     private WorkRepository works;
     @Autowired
-    private TagRepository tags;
+    private TagRegistry tagRegistry;
     @Autowired
     private WorkHourBlockRepository hours;
     @Autowired
-    private WorkInstanceRepository workInstances;
+    private BulkDeletionService deletions;
+    @Autowired
+    private MonthWorksCache monthWorks;
+    @Autowired
+    private ViewVersions viewVersions;
     @Autowired
-    private WorkSessionRepository workSessions;
+    private Validator validator;
+
+    private static final int MAX_IMPORT_WORKS = 1000;
+    private static final int MAX_TAG_LENGTH = TagEntity.MAX_NAME_LENGTH;
 
     /**
      * Creates a new work defined on the work param
@@ -70,24 +90,14 @@ public class SupplierWorkService {
         if (works.existsByNameAndSupplierId(work.getName().trim(), supplier))
             throw new IllegalArgumentException("Work with same name and supplier already exists!");
 
-        ArrayList<TagEntity> workTags = new ArrayList<>();
-        for (String tag : work.getTags()) {
-            TagEntity appTag = tags.findByName(tag.trim());
-            if (appTag == null) {
-                appTag = new TagEntity(tag.trim());
-                tags.save(appTag);
-            }
-            workTags.add(appTag);
-        }
+        Collection<TagEntity> workTags = tagRegistry.resolveTags(work.getTags()).values();
 
         WorkEntity newWork = new WorkEntity(work.getName().trim(), work.getDescription(),
                 workType, supplier, work.getStartDate(), work.getEndDate(), work.getVolunteersNeeded(),
                 new HashSet<>(), new HashSet<>());
 
-        for (TagEntity tag : workTags) {
+        for (TagEntity tag : workTags)
             newWork.addTag(tag);
-            tags.save(tag);
-        }
 
         newWork = works.save(newWork);
 
@@ -98,6 +108,40 @@ public class SupplierWorkService {
             newWork.getWorkHourBlocks().add(newBlock);
             hours.save(newBlock);
         }
+
+        newWork.refreshHourMask();
+        works.save(newWork);
+        monthWorks.invalidateBetween(newWork.getStartDate(), newWork.getEndDate());
+    }
+
+    /**
+     * Creates many works of a supplier in a single transaction. Every work is
+     * validated on its own and the invalid ones are skipped. The tags of all
+     * the works are resolved together, and the works and their hour blocks
+     * are inserted with batched statements.
+     * 
+     * @param supplier Supplier creating the works
+     * @param rows     Works to create
+     * @return Result of every work, in the same order as the rows
+     */
+    @Transactional
+    public List<BatchItemResultDTO> importSupplierWorks(UserEntity supplier, List<CreateWorkDTO> rows) {
+        return importWorks(supplier, rows, new HashMap<>());
+    }
+
+    /**
+     * Creates many works of a supplier in a single transaction, reading them
+     * from a CSV file. The file format is described in WorkCsvParser.
+     * 
+     * @param supplier Supplier creating the works
+     * @param csv      Content of the CSV file
+     * @return Result of every row, in the same order as the file
+     */
+    @Transactional
+    public List<BatchItemResultDTO> importSupplierWorksCsv(UserEntity supplier, String csv) {
+        Map<Integer, String> errors = new HashMap<>();
+        List<CreateWorkDTO> rows = WorkCsvParser.parse(csv, errors);
+        return importWorks(supplier, rows, errors);
     }
 
     /**
@@ -106,6 +150,7 @@ public class SupplierWorkService {
      * @param username Username of the supplier creating the work
      * @param work     DTO with the info to edit a job in the db
      */
+    @Transactional
     public void editSupplierWork(UserEntity supplier, EditWorkDTO work) {
         switch (work.getType().trim()) {
             case ModelsConstants.WORK_TYPE_RECURRING:
@@ -119,10 +164,8 @@ public class SupplierWorkService {
         if (appWork == null)
             throw new IllegalArgumentException("Work doesnt exists!");
 
-        if (appWork.getWorkPostulations() != null)
-            if (appWork.getWorkPostulations().stream()
-                    .filter((p) -> !p.getStatus().equals(PostulationStatusEnum.REJECTED)).count() > 0)
-                throw new IllegalArgumentException("Can't edit a work with postulations already accepted or pending.");
+        if (appWork.getPendingPostulations() + appWork.getAcceptedPostulations() > 0)
+            throw new IllegalArgumentException("Can't edit a work with postulations already accepted or pending.");
 
         if (work.getNewName() != null) {
             if (works.existsByNameAndSupplierId(work.getNewName(), supplier))
@@ -131,50 +174,54 @@ public class SupplierWorkService {
             appWork.setName(work.getNewName());
         }
 
+        // The work may leave the months it was in
+        LocalDate prevStartDate = appWork.getStartDate();
+        LocalDate prevEndDate = appWork.getEndDate();
+
         appWork.setType(work.getType().trim());
         appWork.setDescription(work.getDescription());
         appWork.setStartDate(work.getStartDate());
         appWork.setEndDate(work.getEndDate());
         appWork.setVolunteersNeeded(work.getVolunteersNeeded());
 
-        WorkHourBlocks[] prevWB = appWork.getWorkHourBlocks()
-                .toArray(new WorkHourBlocks[appWork.getWorkHourBlocks().size()]);
-        for (WorkHourBlocks wb : prevWB) {
+        // Only the blocks and tags that changed are deleted and inserted
+        Map<String, WorkHourBlockDTO> newBlocks = new LinkedHashMap<>();
+        for (WorkHourBlockDTO blockDTO : work.getHourBlocks())
+            newBlocks.putIfAbsent(blockDTO.getWeekDay() + "@" + blockDTO.getHourBlock(), blockDTO);
+
+        List<WorkHourBlocks> removedBlocks = new ArrayList<>();
+        for (WorkHourBlocks wb : appWork.getWorkHourBlocks())
+            if (newBlocks.remove(wb.getWeekDay() + "@" + wb.getHourBlock()) == null)
+                removedBlocks.add(wb);
+
+        for (WorkHourBlocks wb : removedBlocks)
             appWork.removeWorkHourBlock(wb);
-            hours.deleteById(wb.getId());
-        }
+        hours.deleteAll(removedBlocks);
 
-        for (WorkHourBlockDTO blockDTO : work.getHourBlocks()) {
+        List<WorkHourBlocks> addedBlocks = new ArrayList<>();
+        for (WorkHourBlockDTO blockDTO : newBlocks.values()) {
             WorkHourBlocks newBlock = new WorkHourBlocks(blockDTO.getHourBlock(), blockDTO.getWeekDay());
             appWork.addWorkHourBlock(newBlock);
-            hours.save(newBlock);
+            addedBlocks.add(newBlock);
         }
+        hours.saveAll(addedBlocks);
 
-        TagEntity[] prevTags = appWork.getWorkTags().toArray(new TagEntity[appWork.getWorkTags().size()]);
-        for (TagEntity pt : prevTags) {
-            if (work.getTags().stream().anyMatch(t -> t.trim().equals(pt.getName())))
-                continue;
+        Set<String> newTags = work.getTags().stream().map((t) -> t.trim()).collect(Collectors.toSet());
+        List<Long> removedTags = new ArrayList<>();
+        for (TagEntity pt : appWork.getWorkTags())
+            if (!newTags.remove(pt.getName()))
+                removedTags.add(pt.getTagId());
 
-            appWork.removeTag(pt);
-            tags.save(pt);
-        }
-
-        ArrayList<TagEntity> newWorkTags = new ArrayList<>();
-        for (String tag : work.getTags()) {
-            TagEntity appTag = tags.findByName(tag.trim());
-            if (appTag == null) {
-                appTag = new TagEntity(tag.trim());
-                tags.save(appTag);
-            }
-            newWorkTags.add(appTag);
-        }
-
-        for (TagEntity tag : newWorkTags) {
-            appWork.addTag(tag);
-            tags.save(tag);
-        }
+        // The join table rows are written directly, leaving the tags untouched
+        if (!removedTags.isEmpty())
+            works.unlinkTags(appWork.getWorkId(), removedTags);
+        if (!newTags.isEmpty())
+            works.linkTags(appWork.getWorkId(), tagRegistry.resolveTagIds(newTags).values());
 
+        appWork.refreshHourMask();
         works.save(appWork);
+        monthWorks.invalidateBetween(prevStartDate, prevEndDate);
+        monthWorks.invalidateBetween(appWork.getStartDate(), appWork.getEndDate());
     }
 
     /**
@@ -188,31 +235,22 @@ public class SupplierWorkService {
      */
     public List<WorkDTO> getSupplierWorksInMonthYear(UserEntity supplier,
             Integer month, Integer year) {
-        LocalDate monthStart = LocalDate.of(year, month, 1);
-        LocalDate monthEnd = LocalDate.of(year, month, monthStart.getMonth().length(monthStart.isLeapYear()));
-
-        Set<WorkEntity> supplierWorks = works.findSupplierWorksBetweenDates(supplier, monthStart, monthEnd);
+        List<CachedWork> supplierWorks = monthWorks.getMonthWorks(YearMonth.of(year, month))
+                .stream()
+                .filter((w) -> w.getSupplierId().equals(supplier.getUserId()))
+                .toList();
 
         if (supplierWorks.isEmpty())
             return new ArrayList<>();
 
-        List<WorkDTO> responses = new ArrayList<>();
-        for (WorkEntity work : supplierWorks) {
-            List<WorkHourBlockDTO> blocks = work.getWorkHourBlocks()
-                    .stream()
-                    .map((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()))
-                    .toList();
-
-            List<String> tags = work.getWorkTags()
-                    .stream()
-                    .map((t) -> t.getName())
-                    .toList();
-
-            Long pendingPostulationsCount = work.getWorkPostulations()
-                    .stream()
-                    .filter((p) -> p.getStatus().equals(PostulationStatusEnum.PENDING))
-                    .count();
+        // Counters are read from the works rows, as the cached works don't follow postulation changes
+        Map<Long, Long> pendingPostulationsCounts = works
+                .findPendingPostulationsCounts(supplierWorks.stream().map((w) -> w.getWorkId()).toList())
+                .stream()
+                .collect(Collectors.toMap((c) -> c.getWorkId(), (c) -> c.getPostulationsCount()));
 
+        List<WorkDTO> responses = new ArrayList<>();
+        for (CachedWork work : supplierWorks) {
             responses.add(WorkDTO.builder()
                     .id(work.getWorkId())
                     .name(work.getName())
@@ -221,9 +259,9 @@ public class SupplierWorkService {
                     .startDate(work.getStartDate())
                     .endDate(work.getEndDate())
                     .volunteersNeeded(work.getVolunteersNeeded())
-                    .hours(blocks)
-                    .tags(tags)
-                    .pendingPostulationsCount(pendingPostulationsCount)
+                    .hours(work.getHours())
+                    .tags(work.getTags())
+                    .pendingPostulationsCount(pendingPostulationsCounts.getOrDefault(work.getWorkId(), 0l))
                     .build());
         }
 
@@ -236,16 +274,141 @@ public class SupplierWorkService {
      * @param username username of the supplier creating the work
      * @param delReq   name of the work and the supplier that created it
      */
+    @Transactional
     public void deleteSupplierWork(UserEntity supplier, DeleteWorkDTO delReq) {
         WorkEntity toDel = works.findByNameAndSupplierId(delReq.getName(), supplier);
         if (toDel == null)
             throw new NonExistentWorkException();
 
-        Set<WorkInstanceEntity> instances = workInstances.findByWorkId(toDel);
-        Set<WorkSessionEntity> sessions = workSessions.findByWorkInstIn(instances);
+        Set<String> volunteers = deletions.deleteWorks(List.of(toDel.getWorkId()));
+        monthWorks.invalidateBetween(toDel.getStartDate(), toDel.getEndDate());
+        for (String volunteer : volunteers)
+            viewVersions.bumpUser(volunteer);
+    }
+
+    /**
+     * Validates and creates the works of a bulk import
+     * 
+     * @param supplier Supplier creating the works
+     * @param rows     Works to create, null for rows that couldn't be read
+     * @param errors   Errors of the rows already known as invalid, by position
+     * @return Result of every row, in the same order as the rows
+     */
+    private List<BatchItemResultDTO> importWorks(UserEntity supplier, List<CreateWorkDTO> rows,
+            Map<Integer, String> errors) {
+        if (!supplier.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
+            throw new UnauthorizedRoleException();
+
+        if (rows.size() > MAX_IMPORT_WORKS)
+            throw new IllegalArgumentException("An import can't have more than " + MAX_IMPORT_WORKS + " works");
+
+        Set<String> takenNames = works.findBySupplierIdInAndNameIn(List.of(supplier), rows.stream()
+                .filter((r) -> r != null && r.getName() != null)
+                .map((r) -> r.getName().trim())
+                .collect(Collectors.toSet()))
+                .stream()
+                .map((w) -> w.getName())
+                .collect(Collectors.toSet());
+
+        List<Integer> validRows = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors.containsKey(i))
+                continue;
+
+            try {
+                validateImportedWork(rows.get(i), takenNames);
+                validRows.add(i);
+            } catch (IllegalArgumentException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        Map<String, TagEntity> workTags = tagRegistry.resolveTags(validRows.stream()
+                .flatMap((i) -> rows.get(i).getTags().stream())
+                .map((t) -> t.trim())
+                .collect(Collectors.toSet()));
+
+        List<WorkEntity> newWorks = new ArrayList<>();
+        List<WorkHourBlocks> newBlocks = new ArrayList<>();
+        for (Integer i : validRows) {
+            CreateWorkDTO row = rows.get(i);
+            Set<WorkHourBlocks> blocks = new HashSet<>();
+            for (WorkHourBlockDTO blockDTO : row.getHourBlocks())
+                blocks.add(new WorkHourBlocks(blockDTO.getHourBlock(), blockDTO.getWeekDay()));
+
+            newWorks.add(new WorkEntity(row.getName().trim(), row.getDescription(), row.getType().trim(), supplier,
+                    row.getStartDate(), row.getEndDate(), row.getVolunteersNeeded(),
+                    row.getTags().stream().map((t) -> workTags.get(t.trim())).collect(Collectors.toSet()),
+                    blocks));
+            newBlocks.addAll(blocks);
+        }
+
+        works.saveAll(newWorks);
+        hours.saveAll(newBlocks);
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[rows.size()];
+        errors.forEach((i, message) -> results[i] = BatchItemResultDTO.failed(i, message));
+        for (int j = 0; j < validRows.size(); j++)
+            results[validRows.get(j)] = BatchItemResultDTO.succeeded(validRows.get(j), newWorks.get(j).getWorkId());
+
+        if (!newWorks.isEmpty()) {
+            monthWorks.invalidateBetween(
+                    newWorks.stream().map((w) -> w.getStartDate()).min(LocalDate::compareTo).get(),
+                    newWorks.stream().map((w) -> w.getEndDate()).max(LocalDate::compareTo).get());
+            viewVersions.bumpUser(supplier.getUserName());
+        }
 
-        workSessions.deleteAll(sessions);
-        workInstances.deleteAll(instances);
-        works.delete(toDel);
+        return List.of(results);
+    }
+
+    /**
+     * Validates a work of a bulk import, and reserves its name
+     * 
+     * @param work       Work to validate
+     * @param takenNames Names already used by the supplier or by previous works
+     *                   of the import
+     */
+    private void validateImportedWork(CreateWorkDTO work, Set<String> takenNames) {
+        if (work == null)
+            throw new IllegalArgumentException("Empty row");
+
+        Set<ConstraintViolation<CreateWorkDTO>> violations = validator.validate(work);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<CreateWorkDTO> violation = violations.iterator().next();
+            throw new IllegalArgumentException(violation.getPropertyPath() + " " + violation.getMessage());
+        }
+
+        switch (work.getType().trim()) {
+            case ModelsConstants.WORK_TYPE_RECURRING:
+            case ModelsConstants.WORK_TYPE_SESSION:
+                break;
+            default:
+                throw new IllegalArgumentException("Work type not recognized");
+        }
+
+        if (work.getStartDate().isAfter(work.getEndDate()))
+            throw new IllegalArgumentException("Work start date is after its end date");
+
+        // Session works, as when created one by one, may have blocks without a week day
+        int minWeekDay = work.getType().trim().equals(ModelsConstants.WORK_TYPE_SESSION)
+                ? WeekDayEnum.NONE.getValue()
+                : WeekDayEnum.SUNDAY.getValue();
+
+        Set<String> blockKeys = new HashSet<>();
+        for (WorkHourBlockDTO block : work.getHourBlocks()) {
+            if (block == null || block.getHourBlock() == null || block.getWeekDay() == null
+                    || block.getWeekDay() < minWeekDay || block.getWeekDay() > WeekDayEnum.SATURDAY.getValue())
+                throw new IllegalArgumentException("Invalid hour block");
+
+            if (!blockKeys.add(block.getWeekDay() + "/" + block.getHourBlock()))
+                throw new IllegalArgumentException("Repeated hour block");
+        }
+
+        for (String tag : work.getTags())
+            if (tag == null || tag.isBlank() || tag.trim().length() > MAX_TAG_LENGTH)
+                throw new IllegalArgumentException("Tags must have between 1 and " + MAX_TAG_LENGTH + " characters");
+
+        if (!takenNames.add(work.getName().trim()))
+            throw new IllegalArgumentException("Work with same name and supplier already exists!");
     }
 }
@@ -1,13 +1,21 @@
 package com.chiguirongos.backend.services.supplier;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.chiguirongos.backend.dtos.requestsDTO.SessionsStatusDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.WorkBlockDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkSessionDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentWorkSessionException;
 import com.chiguirongos.backend.exceptions.runtime.SessionNotInPastException;
@@ -16,14 +24,21 @@ import com.chiguirongos.backend.exceptions.runtime.UnauthorizedUserAccessExcepti
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.utils.ModelsConstants;
 import com.chiguirongos.backend.models.utils.WorkSessionStatusEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
 import com.chiguirongos.backend.models.works.WorkSessionEntity;
-import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.services.cache.ViewVersions;
+import com.chiguirongos.backend.services.sessions.WorkSessionResolver;
 
 @Service
 public class SupplierWorkSessionService {
 
     @Autowired
-    private WorkSessionRepository sessions;
+    private WorkSessionResolver sessions;
+    @Autowired
+    private ViewVersions viewVersions;
+
+    // Maximum number of sessions in a batch
+    private static final int MAX_BATCH_SESSIONS = 500;
 
     /**
      * Changes the status of a work's session
@@ -33,6 +48,7 @@ public class SupplierWorkSessionService {
      * @param sessionId        Session id
      * @param newStatus        New status of the session
      */
+    @Transactional
     public void changeSessionStatus(UserEntity supplier, Long sessionId, WorkSessionStatusEnum newStatus) {
 
         WorkSessionEntity wSession = sessions.findById(sessionId).orElse(null);
@@ -48,8 +64,80 @@ public class SupplierWorkSessionService {
         if (wSession.getSessionDate().isAfter(LocalDate.now()))
             throw new SessionNotInPastException();
 
-        wSession.setStatus(newStatus);
-        sessions.save(wSession);
+        sessions.saveStatus(wSession, newStatus);
+        viewVersions.bumpUser(wSession.getWorkInst().getVolunteerId().getUserName());
+    }
+
+    /**
+     * Changes the status of a batch of work sessions in a single transaction.
+     * The sessions are either a list of session ids or all the sessions of a
+     * work block. The ownership of each work is checked once, and the stored
+     * sessions are updated together with a single statement.
+     * 
+     * @param supplier Supplier creator of the sessions
+     * @param request  DTO containing the sessions and their new status
+     * @return Result of every session, in the same order as the batch
+     */
+    @Transactional
+    public List<BatchItemResultDTO> changeSessionsStatusBatch(UserEntity supplier, SessionsStatusDTO request) {
+        if (!supplier.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
+            throw new UnauthorizedRoleException();
+
+        if ((request.getSessionIds() == null) == (request.getBlock() == null))
+            throw new IllegalArgumentException("Either a list of sessions or a work block is required");
+
+        List<Long> sessionIds;
+        Map<Long, WorkSessionEntity> batchSessions;
+        if (request.getBlock() != null) {
+            WorkBlockDTO block = request.getBlock();
+            batchSessions = new LinkedHashMap<>();
+            for (WorkSessionEntity ws : sessions.findWorkSessionsInBlock(block.getWorkId(), block.getBlockDate(),
+                    block.getBlockTime()))
+                batchSessions.put(ws.getId(), ws);
+
+            sessionIds = new ArrayList<>(batchSessions.keySet());
+            checkBatchSize(sessionIds);
+        } else {
+            // Oversized batches are rejected before loading any session
+            sessionIds = request.getSessionIds();
+            checkBatchSize(sessionIds);
+            batchSessions = sessions.findAllById(sessionIds.stream().filter((id) -> id != null).toList());
+        }
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[sessionIds.size()];
+        Map<Long, Boolean> ownedWorks = new HashMap<>();
+        Set<WorkSessionEntity> changedSessions = new LinkedHashSet<>();
+        Map<Integer, WorkSessionEntity> changedIndexes = new HashMap<>();
+        for (int i = 0; i < sessionIds.size(); i++) {
+            WorkSessionEntity wSession = batchSessions.get(sessionIds.get(i));
+            if (wSession == null) {
+                results[i] = BatchItemResultDTO.failed(i, "Session doesn't exists");
+                continue;
+            }
+
+            WorkEntity work = wSession.getWorkInst().getWorkId();
+            if (!ownedWorks.computeIfAbsent(work.getWorkId(),
+                    (id) -> work.getSupplierId().getUserId().equals(supplier.getUserId())))
+                results[i] = BatchItemResultDTO.failed(i, "The session isn't from one of your works");
+            else if (wSession.getSessionDate().isAfter(LocalDate.now()))
+                results[i] = BatchItemResultDTO.failed(i, "The session is not in the past yet");
+            else if (!changedSessions.add(wSession))
+                results[i] = BatchItemResultDTO.failed(i, "The batch already has that session");
+            else
+                changedIndexes.put(i, wSession);
+        }
+
+        // Virtual sessions get the id of their stored row
+        sessions.saveStatuses(changedSessions, request.getNewStatus());
+        changedIndexes.forEach((i, ws) -> results[i] = BatchItemResultDTO.succeeded(i, ws.getId(),
+                request.getNewStatus().name()));
+
+        changedSessions.stream()
+                .map((ws) -> ws.getWorkInst().getVolunteerId().getUserName())
+                .distinct()
+                .forEach((v) -> viewVersions.bumpUser(v));
+
+        return List.of(results);
     }
 
     /**
@@ -64,7 +152,7 @@ public class SupplierWorkSessionService {
      */
     public List<WorkSessionDTO> getWorkSessionsByBlock(UserEntity supplier, WorkBlockDTO workInfo) {
 
-        Set<WorkSessionEntity> allSessions = sessions.findWorkSessionsInBlock(workInfo.getWorkId(),
+        List<WorkSessionEntity> allSessions = sessions.findWorkSessionsInBlock(workInfo.getWorkId(),
                 workInfo.getBlockDate(), workInfo.getBlockTime());
 
         return allSessions
@@ -81,4 +169,14 @@ public class SupplierWorkSessionService {
                             .build();
                 }).toList();
     }
+
+    /**
+     * Checks that a batch doesn't have more sessions than allowed
+     * 
+     * @param sessionIds Ids of the sessions of the batch
+     */
+    private static void checkBatchSize(List<Long> sessionIds) {
+        if (sessionIds.size() > MAX_BATCH_SESSIONS)
+            throw new IllegalArgumentException("A batch can't have more than " + MAX_BATCH_SESSIONS + " sessions");
+    }
 }
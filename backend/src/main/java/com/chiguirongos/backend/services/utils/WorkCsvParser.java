@@ -0,0 +1,159 @@
+package com.chiguirongos.backend.services.utils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.CreateWorkDTO;
+
+/**
+ * Class containing utilities to read the works of a bulk import from a CSV
+ * file. The file starts with a header row and has the columns:
+ * name, description, type, tags, startDate, endDate, volunteersNeeded and
+ * hourBlocks. Tags are separated by ';', dates use the dd-MM-yyyy format and
+ * hour blocks are written as weekDay@HH:mm separated by ';'. Fields can be
+ * quoted with '"'.
+ */
+public class WorkCsvParser {
+
+    public static final String[] COLUMNS = { "name", "description", "type", "tags", "startDate", "endDate",
+            "volunteersNeeded", "hourBlocks" };
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    /**
+     * Reads the works of a CSV file. Rows that can't be read are left as null
+     * and their error is added to the errors map.
+     * 
+     * @param csv    Content of the CSV file
+     * @param errors Map where the error of every unreadable row is added, by
+     *               row position
+     * @return Works of the file, in the same order as its rows
+     */
+    public static List<CreateWorkDTO> parse(String csv, Map<Integer, String> errors) {
+        List<List<String>> records = readRecords(csv);
+        if (records.isEmpty())
+            throw new IllegalArgumentException("The CSV file is empty");
+
+        List<String> header = records.get(0).stream().map((c) -> c.trim()).toList();
+        if (!header.equals(Arrays.asList(COLUMNS)))
+            throw new IllegalArgumentException("The CSV header must be: " + String.join(",", COLUMNS));
+
+        List<CreateWorkDTO> rows = new ArrayList<>();
+        for (List<String> record : records.subList(1, records.size())) {
+            try {
+                rows.add(parseRow(record));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                errors.put(rows.size(), "Malformed row: " + e.getMessage());
+                rows.add(null);
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Builds a work from the fields of a CSV row
+     * 
+     * @param record Fields of the row
+     * @return Work of the row
+     */
+    private static CreateWorkDTO parseRow(List<String> record) {
+        if (record.size() != COLUMNS.length)
+            throw new IllegalArgumentException(
+                    "expected " + COLUMNS.length + " columns but found " + record.size());
+
+        ArrayList<String> tags = new ArrayList<>();
+        for (String tag : record.get(3).split(";"))
+            if (!tag.isBlank())
+                tags.add(tag.trim());
+
+        List<WorkHourBlockDTO> blocks = new ArrayList<>();
+        for (String block : record.get(7).split(";")) {
+            if (block.isBlank())
+                continue;
+
+            String[] parts = block.trim().split("@");
+            if (parts.length != 2)
+                throw new IllegalArgumentException("hour block '" + block.trim() + "' must be weekDay@HH:mm");
+
+            blocks.add(new WorkHourBlockDTO(LocalTime.parse(parts[1].trim()), Integer.parseInt(parts[0].trim())));
+        }
+
+        return new CreateWorkDTO(
+                record.get(0),
+                record.get(1),
+                record.get(2),
+                tags,
+                LocalDate.parse(record.get(4).trim(), DATE_FORMAT),
+                LocalDate.parse(record.get(5).trim(), DATE_FORMAT),
+                Long.parseLong(record.get(6).trim()),
+                blocks.toArray(new WorkHourBlockDTO[blocks.size()]));
+    }
+
+    /**
+     * Splits a CSV file in records and fields. Blank lines are skipped.
+     * 
+     * @param csv Content of the CSV file
+     * @return Fields of every record of the file
+     */
+    private static List<List<String>> readRecords(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n')
+                    i++;
+
+                addRecord(records, record, field);
+                record = new ArrayList<>();
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        addRecord(records, record, field);
+        return records;
+    }
+
+    /**
+     * Adds the last field to a record and the record to the list, unless the
+     * record is a blank line
+     * 
+     * @param records List of records
+     * @param record  Fields of the record
+     * @param field   Last field of the record
+     */
+    private static void addRecord(List<List<String>> records, List<String> record, StringBuilder field) {
+        if (record.isEmpty() && field.toString().isBlank())
+            return;
+
+        record.add(field.toString());
+        records.add(record);
+    }
+}
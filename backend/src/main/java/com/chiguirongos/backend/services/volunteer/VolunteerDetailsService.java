@@ -1,10 +1,15 @@
 package com.chiguirongos.backend.services.volunteer;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.chiguirongos.backend.dtos.requestsDTO.EditPreferencesDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.UserDTO;
@@ -12,9 +17,10 @@ import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
 import com.chiguirongos.backend.models.tags.TagEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.users.UserHourBlocks;
-import com.chiguirongos.backend.repositories.TagRepository;
 import com.chiguirongos.backend.repositories.UserHourBlockRepository;
 import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.services.cache.TagRegistry;
+import com.chiguirongos.backend.services.cache.ViewVersions;
 
 /**
  * Service that handles all the operations related to a
@@ -26,9 +32,13 @@ public class VolunteerDetailsService {
     @Autowired
     private UserRepository users;
     @Autowired
-    private TagRepository tags;
+    private TagRegistry tagRegistry;
     @Autowired
     private UserHourBlockRepository hours;
+    @Autowired
+    private VolunteerWorkRanker ranker;
+    @Autowired
+    private ViewVersions viewVersions;
 
     /**
      * Edit user's preferences
@@ -36,46 +46,46 @@ public class VolunteerDetailsService {
      * @param preference A DTO with all user's new preferences
      * @param username   User's username who want to change its preferences
      */
+    @Transactional
     public void editUserPreferences(UserEntity volunteer, EditPreferencesDTO preference) {
-        UserHourBlocks[] pervWB = volunteer.getUserHourBlocks()
-                .toArray(new UserHourBlocks[volunteer.getUserHourBlocks().size()]);
+        // Only the blocks and tags that changed are deleted and inserted
+        Map<String, UserHourBlockDTO> newBlocks = new LinkedHashMap<>();
+        for (UserHourBlockDTO blockDTO : preference.getHourBlocks())
+            newBlocks.putIfAbsent(blockDTO.getWeekDay() + "@" + blockDTO.getHourBlock(), blockDTO);
+
+        List<UserHourBlocks> removedBlocks = new ArrayList<>();
+        for (UserHourBlocks wb : volunteer.getUserHourBlocks())
+            if (newBlocks.remove(wb.getWeekDay() + "@" + wb.getHourBlock()) == null)
+                removedBlocks.add(wb);
 
-        for (UserHourBlocks wb : pervWB) {
+        for (UserHourBlocks wb : removedBlocks)
             volunteer.removeUserHourBlock(wb);
-            hours.deleteById(wb.getId());
-        }
+        hours.deleteAll(removedBlocks);
 
-        for (UserHourBlockDTO blockDTO : preference.getHourBlocks()) {
+        List<UserHourBlocks> addedBlocks = new ArrayList<>();
+        for (UserHourBlockDTO blockDTO : newBlocks.values()) {
             UserHourBlocks newBlock = new UserHourBlocks(blockDTO.getHourBlock(), blockDTO.getWeekDay());
             volunteer.addUserHourBlock(newBlock);
-            hours.save(newBlock);
+            addedBlocks.add(newBlock);
         }
+        hours.saveAll(addedBlocks);
 
-        TagEntity[] prevTags = volunteer.getUserTags().toArray(new TagEntity[volunteer.getUserTags().size()]);
-        for (TagEntity pt : prevTags) {
-            if (preference.getUserTags().stream().anyMatch(t -> t.trim().equals(pt.getName())))
-                continue;
+        Set<String> newTags = preference.getUserTags().stream().map((t) -> t.trim()).collect(Collectors.toSet());
+        List<Long> removedTags = new ArrayList<>();
+        for (TagEntity pt : volunteer.getUserTags())
+            if (!newTags.remove(pt.getName()))
+                removedTags.add(pt.getTagId());
 
-            volunteer.removeTag(pt);
-            tags.save(pt);
-        }
-
-        ArrayList<TagEntity> newUserTags = new ArrayList<>();
-        for (String tag : preference.getUserTags()) {
-            TagEntity appTag = tags.findByName(tag.trim());
-            if (appTag == null) {
-                appTag = new TagEntity(tag.trim());
-                tags.save(appTag);
-            }
-            newUserTags.add(appTag);
-        }
-
-        for (TagEntity tag : newUserTags) {
-            volunteer.addTag(tag);
-            tags.save(tag);
-        }
+        // The join table rows are written directly, leaving the tags untouched
+        if (!removedTags.isEmpty())
+            users.unlinkTags(volunteer.getUserId(), removedTags);
+        if (!newTags.isEmpty())
+            users.linkTags(volunteer.getUserId(), tagRegistry.resolveTagIds(newTags).values());
 
+        volunteer.refreshHourMask();
         users.save(volunteer);
+        ranker.evictProfile(volunteer);
+        viewVersions.bumpUser(volunteer.getUserName());
     }
 
     /**
@@ -2,17 +2,24 @@ package com.chiguirongos.backend.services.volunteer;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import com.chiguirongos.backend.dtos.requestsDTO.EditPostulationDTO;
 import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
 import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.PostulationDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentPostulationException;
@@ -24,11 +31,15 @@ import com.chiguirongos.backend.models.postulations.PostulationEntity;
 import com.chiguirongos.backend.models.users.UserEntity;
 import com.chiguirongos.backend.models.utils.ModelsConstants;
 import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.models.utils.WeekHourMask;
 import com.chiguirongos.backend.models.works.WorkEntity;
-import com.chiguirongos.backend.models.works.WorkHourBlocks;
 import com.chiguirongos.backend.repositories.PostulationRepository;
 import com.chiguirongos.backend.repositories.UserRepository;
 import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.repositories.projections.VolunteerPostulationRow;
+import com.chiguirongos.backend.repositories.projections.WorkHourBlockRow;
+import com.chiguirongos.backend.repositories.projections.WorkTagRow;
+import com.chiguirongos.backend.services.cache.ViewVersions;
 
 /**
  * Service to managed all logic about users' postulation
@@ -42,6 +53,13 @@ public class VolunteerPostulationService {
     private WorkRepository works;
     @Autowired
     private PostulationRepository postulations;
+    @Autowired
+    private ViewVersions viewVersions;
+
+    // Maximum number of postulations in a batch
+    private static final int MAX_BATCH_POSTULATIONS = 50;
+    private static final String BATCH_CONFLICT = "Another postulation of the batch shares an hour block with this one";
+    private static final String BATCH_REJECTED = "The batch has postulations sharing an hour block";
 
     /**
      * Creates a new postulation
@@ -49,11 +67,12 @@ public class VolunteerPostulationService {
      * @param username           User's usarname who wants to create a postulation
      * @param postulationDetails all details of new postulation
      */
+    @Transactional
     public void postulateUser(UserEntity volunteer, CreatePostulationDTO postulationDetails) {
 
         // check if the work's supplier exists
         UserEntity supplier = users.findByUserName(postulationDetails.getSupplierUsername());
-        if (supplier == null)
+        if (supplier == null || supplier.getDeleted())
             throw new NonExistentUserException();
 
         if (!supplier.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
@@ -70,6 +89,7 @@ public class VolunteerPostulationService {
                 work, null);
 
         PostulationEntity postulation = postulations.findByVolunteerAndWork(volunteer, work);
+        boolean wasRejected = postulation != null;
         if (postulation != null) {
             if (postulation.getStatus().equals(PostulationStatusEnum.PENDING)
                     || postulation.getStatus().equals(PostulationStatusEnum.ACCEPTED))
@@ -91,6 +111,110 @@ public class VolunteerPostulationService {
         postulations.save(postulation);
         users.save(volunteer);
         works.save(work);
+        works.addPostulationCounts(work.getWorkId(), 1l, 0l, wasRejected ? -1l : 0l);
+        viewVersions.bumpUser(volunteer.getUserName());
+        viewVersions.bumpUser(supplier.getUserName());
+    }
+
+    /**
+     * Creates a batch of postulations in a single transaction. Every postulation
+     * is validated against the volunteer existing postulations and against the
+     * previous postulations of the batch. Invalid postulations are skipped and
+     * the valid ones are inserted together, unless two postulations of the
+     * batch share an hour block, which rejects the whole batch.
+     * 
+     * @param volunteer Volunteer creating the postulations
+     * @param batch     Details of every new postulation
+     * @return Result of every postulation, in the same order as the batch
+     */
+    @Transactional
+    public List<BatchItemResultDTO> postulateUserBatch(UserEntity volunteer, List<CreatePostulationDTO> batch) {
+        if (batch.size() > MAX_BATCH_POSTULATIONS)
+            throw new IllegalArgumentException(
+                    "A batch can't have more than " + MAX_BATCH_POSTULATIONS + " postulations");
+
+        List<CreatePostulationDTO> validBatch = batch.stream()
+                .filter((p) -> p != null && p.getSupplierUsername() != null && p.getWorkName() != null
+                        && p.getStartDate() != null && p.getEndDate() != null)
+                .toList();
+
+        if (validBatch.isEmpty())
+            return buildBatchResults(batch, new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+
+        // Suppliers, works and postulations of the whole batch are retrieved with a single query each
+        Map<String, UserEntity> suppliers = users.findByUserNameIn(validBatch.stream()
+                .map((p) -> p.getSupplierUsername())
+                .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap((u) -> u.getUserName(), (u) -> u));
+
+        Set<WorkEntity> batchWorks = suppliers.isEmpty() ? new HashSet<>()
+                : works.findBySupplierIdInAndNameIn(suppliers.values(), validBatch.stream()
+                        .map((p) -> p.getWorkName())
+                        .collect(Collectors.toSet()));
+
+        Map<Long, Map<String, WorkEntity>> supplierWorks = batchWorks.stream()
+                .collect(Collectors.groupingBy((w) -> w.getSupplierId().getUserId(),
+                        Collectors.toMap((w) -> w.getName(), (w) -> w)));
+
+        Map<Long, PostulationEntity> previousPostulations = batchWorks.isEmpty() ? new HashMap<>()
+                : postulations.findByVolunteerAndWorkIn(volunteer, batchWorks)
+                        .stream()
+                        .collect(Collectors.toMap((p) -> p.getWork().getWorkId(), (p) -> p));
+
+        LocalDate scheduleStart = validBatch.stream().map((p) -> p.getStartDate()).min(LocalDate::compareTo).get();
+        LocalDate scheduleEnd = validBatch.stream().map((p) -> p.getEndDate()).max(LocalDate::compareTo).get();
+        Set<PostulationEntity> schedule = postulations.findVolunteerPostulationsWithWorkBetweenDates(volunteer,
+                scheduleStart, scheduleEnd, List.of(PostulationStatusEnum.ACCEPTED, PostulationStatusEnum.PENDING));
+
+        List<PostulationEntity> toSave = new ArrayList<>();
+        List<Integer> toSaveIndexes = new ArrayList<>();
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                toSave.add(buildBatchPostulation(volunteer, batch.get(i), suppliers, supplierWorks,
+                        previousPostulations, schedule, toSave));
+                toSaveIndexes.add(i);
+            } catch (IllegalArgumentException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        /**
+         * The volunteer has to choose between the postulations sharing an hour
+         * block, so nothing is stored. The reused postulations were already
+         * changed, so the transaction is rolled back instead of committed.
+         */
+        if (errors.containsValue(BATCH_CONFLICT)) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            for (Integer i : toSaveIndexes)
+                errors.put(i, BATCH_REJECTED);
+
+            return buildBatchResults(batch, new ArrayList<>(), new ArrayList<>(), errors);
+        }
+
+        // Previous postulations can only be reused when they were rejected
+        Map<Long, Long> reusedPostulations = toSave.stream()
+                .filter((p) -> p.getPostulationId() != null)
+                .collect(Collectors.groupingBy((p) -> p.getWork().getWorkId(), Collectors.counting()));
+
+        List<PostulationEntity> saved = new ArrayList<>();
+        postulations.saveAll(toSave).forEach(saved::add);
+
+        saved.stream()
+                .collect(Collectors.groupingBy((p) -> p.getWork().getWorkId(), Collectors.counting()))
+                .forEach((workId, count) -> works.addPostulationCounts(workId, count, 0l,
+                        -reusedPostulations.getOrDefault(workId, 0l)));
+
+        if (!saved.isEmpty()) {
+            viewVersions.bumpUser(volunteer.getUserName());
+            saved.stream()
+                    .map((p) -> p.getWork().getSupplierId().getUserName())
+                    .distinct()
+                    .forEach((s) -> viewVersions.bumpUser(s));
+        }
+
+        return buildBatchResults(batch, saved, toSaveIndexes, errors);
     }
 
     public PostulationDTO getWorkUserPostulation(UserEntity volunteer, Long workId) {
@@ -125,25 +249,22 @@ public class VolunteerPostulationService {
      */
     public List<PostulationDTO> getVolunteerPostulations(UserEntity volunteer) {
 
-        Set<PostulationEntity> userPostulations = volunteer.getUserPostulations();
-        if (userPostulations.isEmpty())
-            return new ArrayList<>();
+        List<VolunteerPostulationRow> rows = postulations.findVolunteerPostulationRows(volunteer,
+                Pageable.unpaged());
 
         List<PostulationDTO> responses = new ArrayList<>();
-
-        for (PostulationEntity postulation : userPostulations) {
-            WorkEntity work = postulation.getWork();
+        for (VolunteerPostulationRow row : rows) {
             WorkDTO workDTO = WorkDTO.builder()
-                    .id(work.getWorkId())
-                    .name(work.getName())
-                    .supplierUsername(work.getSupplierId().getUserName())
+                    .id(row.getWorkId())
+                    .name(row.getWorkName())
+                    .supplierUsername(row.getSupplierUsername())
                     .build();
 
             responses.add(PostulationDTO.builder()
-                    .postulationId(postulation.getPostulationId())
-                    .status(postulation.getStatus())
-                    .startDate(postulation.getStartDate())
-                    .endDate(postulation.getEndDate())
+                    .postulationId(row.getPostulationId())
+                    .status(row.getStatus())
+                    .startDate(row.getStartDate())
+                    .endDate(row.getEndDate())
                     .volunteerUsername(volunteer.getUserName())
                     .volunteerFullname(volunteer.getName())
                     .work(workDTO)
@@ -154,7 +275,8 @@ public class VolunteerPostulationService {
     }
 
     /**
-     * Gets all user's postulations using pages
+     * Gets all user's postulations using pages. The hour blocks and tags of
+     * the works of the page are loaded with one query each.
      * 
      * @param username User who requiered get its postulations
      * @param page     Number of page
@@ -165,44 +287,48 @@ public class VolunteerPostulationService {
     public List<PostulationDTO> getPagedVolunteerPostulations(UserEntity volunteer, Integer page,
             Integer pageSize) {
 
-        List<PostulationEntity> allPostulations = postulations.findByVolunteer(volunteer,
-                PageRequest.of(page, pageSize, Sort.by("startDate").descending()));
+        List<VolunteerPostulationRow> rows = postulations.findVolunteerPostulationRows(volunteer,
+                PageRequest.of(page, pageSize));
 
-        if (allPostulations.isEmpty())
+        if (rows.isEmpty())
             return new ArrayList<>();
 
-        List<PostulationDTO> responses = new ArrayList<>();
-        for (PostulationEntity postulation : allPostulations) {
-            WorkEntity work = postulation.getWork();
-            List<WorkHourBlockDTO> blocks = work.getWorkHourBlocks()
-                    .stream()
-                    .map((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()))
-                    .toList();
-
-            List<String> tags = work.getWorkTags()
-                    .stream()
-                    .map((t) -> t.getName())
-                    .toList();
+        Set<Long> workIds = rows.stream()
+                .map(VolunteerPostulationRow::getWorkId)
+                .collect(Collectors.toSet());
+
+        Map<Long, List<WorkHourBlockDTO>> worksBlocks = works.findHourBlocksByWorkIdIn(workIds)
+                .stream()
+                .collect(Collectors.groupingBy(WorkHourBlockRow::getWorkId,
+                        Collectors.mapping((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()),
+                                Collectors.toList())));
+
+        Map<Long, List<String>> worksTags = works.findTagNamesByWorkIdIn(workIds)
+                .stream()
+                .collect(Collectors.groupingBy(WorkTagRow::getWorkId,
+                        Collectors.mapping(WorkTagRow::getTagName, Collectors.toList())));
 
+        List<PostulationDTO> responses = new ArrayList<>();
+        for (VolunteerPostulationRow row : rows) {
             WorkDTO workDTO = WorkDTO.builder()
-                    .id(work.getWorkId())
-                    .name(work.getName())
-                    .description(work.getDescription())
-                    .supplierName(work.getSupplierId().getName())
-                    .supplierUsername(work.getSupplierId().getUserName())
-                    .type(work.getType())
-                    .volunteersNeeded(work.getVolunteersNeeded())
-                    .startDate(work.getStartDate())
-                    .endDate(work.getEndDate())
-                    .hours(blocks)
-                    .tags(tags)
+                    .id(row.getWorkId())
+                    .name(row.getWorkName())
+                    .description(row.getWorkDescription())
+                    .supplierName(row.getSupplierName())
+                    .supplierUsername(row.getSupplierUsername())
+                    .type(row.getWorkType())
+                    .volunteersNeeded(row.getVolunteersNeeded())
+                    .startDate(row.getWorkStartDate())
+                    .endDate(row.getWorkEndDate())
+                    .hours(worksBlocks.getOrDefault(row.getWorkId(), List.of()))
+                    .tags(worksTags.getOrDefault(row.getWorkId(), List.of()))
                     .build();
 
             PostulationDTO postDTO = PostulationDTO.builder()
-                    .postulationId(postulation.getPostulationId())
-                    .status(postulation.getStatus())
-                    .startDate(postulation.getStartDate())
-                    .endDate(postulation.getEndDate())
+                    .postulationId(row.getPostulationId())
+                    .status(row.getStatus())
+                    .startDate(row.getStartDate())
+                    .endDate(row.getEndDate())
                     .volunteerFullname(volunteer.getName())
                     .volunteerUsername(volunteer.getUserName())
                     .work(workDTO)
@@ -220,6 +346,7 @@ public class VolunteerPostulationService {
      * @param username      The user who wants to remove one of his postulations
      * @param postulationId The postulation to remove
      */
+    @Transactional
     public void cancelPostulation(UserEntity volunteer, Long postulationId) {
 
         PostulationEntity postulation = postulations.findById(postulationId).orElse(null);
@@ -236,6 +363,9 @@ public class VolunteerPostulationService {
         postulation.getWork().removePostulation(postulation);
 
         postulations.delete(postulation);
+        works.addPostulationCounts(postulation.getWork().getWorkId(), -1l, 0l, 0l);
+        viewVersions.bumpUser(volunteer.getUserName());
+        viewVersions.bumpUser(postulation.getWork().getSupplierId().getUserName());
     }
 
     /**
@@ -333,6 +463,109 @@ public class VolunteerPostulationService {
             throw new IllegalArgumentException("Can't postulate to a work thta is already finished");
     }
 
+    /**
+     * Validates a postulation of a batch and builds it, without saving it
+     * 
+     * @param volunteer            Volunteer creating the postulation
+     * @param details              Details of the postulation
+     * @param suppliers            Suppliers of the batch by username
+     * @param supplierWorks        Works of the batch by supplier id and name
+     * @param previousPostulations Previous volunteer postulations to the works of
+     *                             the batch, by work id
+     * @param schedule             Volunteer pending and accepted postulations
+     *                             between the batch dates
+     * @param batchPostulations    Postulations of the batch already validated
+     * @return The postulation to save
+     */
+    private PostulationEntity buildBatchPostulation(UserEntity volunteer, CreatePostulationDTO details,
+            Map<String, UserEntity> suppliers, Map<Long, Map<String, WorkEntity>> supplierWorks,
+            Map<Long, PostulationEntity> previousPostulations, Set<PostulationEntity> schedule,
+            List<PostulationEntity> batchPostulations) {
+
+        if (details == null || details.getSupplierUsername() == null || details.getWorkName() == null
+                || details.getStartDate() == null || details.getEndDate() == null)
+            throw new IllegalArgumentException("Missing postulation details");
+
+        UserEntity supplier = suppliers.get(details.getSupplierUsername());
+        if (supplier == null || supplier.getDeleted())
+            throw new IllegalArgumentException("Supplier doesn't exist");
+
+        if (!supplier.getRole().equals(ModelsConstants.SUPPLIER_ROLE))
+            throw new IllegalArgumentException("The user isn't a supplier");
+
+        WorkEntity work = supplierWorks.getOrDefault(supplier.getUserId(), Map.of()).get(details.getWorkName());
+        if (work == null)
+            throw new IllegalArgumentException("Work doesn't exist");
+
+        if (batchPostulations.stream().anyMatch((p) -> p.getWork().getWorkId().equals(work.getWorkId())))
+            throw new IllegalArgumentException("The batch already has a postulation to that work");
+
+        validatePostulationDatesForWork(details.getStartDate(), details.getEndDate(), work);
+
+        // The postulation can't share an hour block with the schedule or with the rest of the batch
+        WeekHourMask workMask = work.getHourMask();
+        if (schedule.stream().anyMatch((p) -> sharesHourBlock(p, details, workMask)))
+            throw new IllegalArgumentException(
+                    "You can't postulate in an hour block which you already have a postulation");
+
+        if (batchPostulations.stream().anyMatch((p) -> sharesHourBlock(p, details, workMask)))
+            throw new IllegalArgumentException(BATCH_CONFLICT);
+
+        PostulationEntity postulation = previousPostulations.get(work.getWorkId());
+        if (postulation == null)
+            return new PostulationEntity(details.getStartDate(), details.getEndDate(), volunteer, work);
+
+        if (postulation.getStatus().equals(PostulationStatusEnum.PENDING)
+                || postulation.getStatus().equals(PostulationStatusEnum.ACCEPTED))
+            throw new IllegalArgumentException("The user already have a pending postulation to that work");
+
+        postulation.setStartDate(details.getStartDate());
+        postulation.setEndDate(details.getEndDate());
+        postulation.setStatus(PostulationStatusEnum.PENDING);
+        return postulation;
+    }
+
+    /**
+     * Checks if a postulation overlaps the dates of a new postulation and shares
+     * an hour block with its work
+     * 
+     * @param postulation Postulation to check
+     * @param details     Details of the new postulation
+     * @param workMask    Hour blocks of the work of the new postulation
+     * @return True if both postulations share an hour block
+     */
+    private boolean sharesHourBlock(PostulationEntity postulation, CreatePostulationDTO details,
+            WeekHourMask workMask) {
+        return !postulation.getStartDate().isAfter(details.getEndDate())
+                && !details.getStartDate().isAfter(postulation.getEndDate())
+                && postulation.getWork().getHourMask().intersects(workMask);
+    }
+
+    /**
+     * Builds the result of every postulation of a batch
+     * 
+     * @param batch         Details of every postulation of the batch
+     * @param saved         Postulations saved
+     * @param savedIndexes  Position in the batch of every saved postulation
+     * @param errors        Reason of the failure of every postulation not saved,
+     *                      by position in the batch
+     * @return Result of every postulation, in the same order as the batch
+     */
+    private List<BatchItemResultDTO> buildBatchResults(List<CreatePostulationDTO> batch,
+            List<PostulationEntity> saved, List<Integer> savedIndexes, Map<Integer, String> errors) {
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[batch.size()];
+        for (int i = 0; i < saved.size(); i++)
+            results[savedIndexes.get(i)] = BatchItemResultDTO.succeeded(savedIndexes.get(i),
+                    saved.get(i).getPostulationId());
+
+        for (int i = 0; i < results.length; i++)
+            if (results[i] == null)
+                results[i] = BatchItemResultDTO.failed(i, errors.getOrDefault(i, "Missing postulation details"));
+
+        return List.of(results);
+    }
+
     /**
      * Check if exists a postulation in any hou
      * 
@@ -345,35 +578,15 @@ public class VolunteerPostulationService {
     private void validatePostulationHourBlocks(UserEntity volunteer, LocalDate startDate, LocalDate endDate,
             WorkEntity work, PostulationEntity previousPostulation) {
 
-        Set<PostulationEntity> volunteerPostulations = postulations.findVolunteerPostulationsBetweenDatesAndStatusIn(
-                volunteer, startDate, endDate, List.of(PostulationStatusEnum.ACCEPTED, PostulationStatusEnum.PENDING));
-
-        Set<WorkHourBlocks> newPostulationHourBlocks = work.getWorkHourBlocks();
-
-        for (PostulationEntity existingPost : volunteerPostulations) {
-            if (previousPostulation != null
-                    && previousPostulation.getPostulationId().equals(existingPost.getPostulationId())) {
-                continue;
-            }
-
-            WorkEntity existingWork = existingPost.getWork();
-            for (WorkHourBlocks phb : existingWork.getWorkHourBlocks()) {
-                for (WorkHourBlocks hb : newPostulationHourBlocks) {
-
-                    Integer existingWD = (phb.getWeekDay() == -1
-                            ? (existingWork.getStartDate().getDayOfWeek().getValue() % 7)
-                            : phb.getWeekDay());
+        WeekHourMask newPostulationMask = work.getHourMask();
+        Long ignoredPostulationId = previousPostulation != null ? previousPostulation.getPostulationId() : 0l;
 
-                    Integer newPostWD = (hb.getWeekDay() == -1
-                            ? (work.getStartDate().getDayOfWeek().getValue() % 7)
-                            : hb.getWeekDay());
+        Long conflict = postulations.findFirstConflictingPostulation(volunteer.getUserId(), startDate, endDate,
+                ignoredPostulationId, newPostulationMask.getMaskWord0(), newPostulationMask.getMaskWord1(),
+                newPostulationMask.getMaskWord2());
 
-                    if (phb.getHourBlock().equals(hb.getHourBlock()) && newPostWD.equals(existingWD)) {
-                        throw new IllegalArgumentException(
-                                "You can't postulate in an hour block which you already have a postulation");
-                    }
-                }
-            }
-        }
+        if (conflict != null)
+            throw new IllegalArgumentException(
+                    "You can't postulate in an hour block which you already have a postulation");
     }
 }
@@ -0,0 +1,139 @@
+package com.chiguirongos.backend.services.volunteer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.WeekHourMask;
+import com.chiguirongos.backend.services.cache.CachedWork;
+
+/**
+ * Ranking engine of the volunteer works feed. Scores every work by its
+ * overlap with the volunteer preferred tags, how well it fits the
+ * volunteer preferred hour blocks and its remaining capacity, and keeps
+ * only the best works in a bounded heap.
+ * 
+ * The preferences of every volunteer are cached, so they must be evicted
+ * every time they change.
+ */
+@Service
+public class VolunteerWorkRanker {
+
+    // Weights of each score component, they add up to 1
+    private static final double TAGS_WEIGHT = 0.5;
+    private static final double SCHEDULE_WEIGHT = 0.35;
+    private static final double CAPACITY_WEIGHT = 0.15;
+
+    private final Map<Long, RankingProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Ranking inputs of a volunteer
+     */
+    private static class RankingProfile {
+        private final Set<Long> tagIds;
+        private final WeekHourMask hourMask;
+
+        private RankingProfile(Set<Long> tagIds, WeekHourMask hourMask) {
+            this.tagIds = tagIds;
+            this.hourMask = hourMask;
+        }
+    }
+
+    /**
+     * Work with its score
+     */
+    private static class ScoredWork {
+        private final CachedWork work;
+        private final double score;
+
+        private ScoredWork(CachedWork work, double score) {
+            this.work = work;
+            this.score = score;
+        }
+    }
+
+    // Worst works first, ties are broken by preferring the oldest works
+    private static final Comparator<ScoredWork> WORST_FIRST = Comparator
+            .comparingDouble((ScoredWork sw) -> sw.score)
+            .thenComparing((sw) -> sw.work.getWorkId(), Comparator.reverseOrder());
+
+    /**
+     * Gets the best works for a volunteer, sorted from best to worst
+     * 
+     * @param volunteer Volunteer to rank the works for
+     * @param works     Works to rank
+     * @param limit     Maximum number of works to return
+     * @return The best works for the volunteer
+     */
+    public List<CachedWork> rankTopWorks(UserEntity volunteer, Collection<CachedWork> works, Integer limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("The number of works to rank must be positive");
+
+        RankingProfile profile = getProfile(volunteer);
+
+        PriorityQueue<ScoredWork> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (CachedWork work : works) {
+            best.offer(new ScoredWork(work, score(profile, work)));
+            if (best.size() > limit)
+                best.poll();
+        }
+
+        List<ScoredWork> ranked = new ArrayList<>(best);
+        ranked.sort(WORST_FIRST.reversed());
+        return ranked.stream().map((sw) -> sw.work).toList();
+    }
+
+    /**
+     * Removes the cached ranking inputs of a volunteer. Must be called every
+     * time the volunteer preferred tags or hour blocks change.
+     * 
+     * @param volunteer Volunteer whose preferences changed
+     */
+    public void evictProfile(UserEntity volunteer) {
+        profiles.remove(volunteer.getUserId());
+    }
+
+    /**
+     * Scores a work for a volunteer. Each component goes from 0 to 1.
+     * 
+     * @param profile Volunteer ranking inputs
+     * @param work    Work to score
+     * @return Score of the work, from 0 to 1
+     */
+    private double score(RankingProfile profile, CachedWork work) {
+        double tagsScore = 0;
+        if (!profile.tagIds.isEmpty()) {
+            long sharedTags = work.getTagIds()
+                    .stream()
+                    .filter((id) -> profile.tagIds.contains(id))
+                    .count();
+            tagsScore = (double) sharedTags / profile.tagIds.size();
+        }
+
+        WeekHourMask workMask = work.getHourMask();
+        double scheduleScore = workMask.isEmpty() ? 0 : (double) workMask.overlap(profile.hourMask) / workMask.size();
+
+        double freeSlots = Math.max(0, work.getVolunteersNeeded() - work.getFilledSlots());
+        double capacityScore = freeSlots / work.getVolunteersNeeded();
+
+        return TAGS_WEIGHT * tagsScore + SCHEDULE_WEIGHT * scheduleScore + CAPACITY_WEIGHT * capacityScore;
+    }
+
+    private RankingProfile getProfile(UserEntity volunteer) {
+        return profiles.computeIfAbsent(volunteer.getUserId(), (id) -> new RankingProfile(
+                volunteer.getUserTags()
+                        .stream()
+                        .map((t) -> t.getTagId())
+                        .collect(Collectors.toUnmodifiableSet()),
+                volunteer.getHourMask()));
+    }
+}
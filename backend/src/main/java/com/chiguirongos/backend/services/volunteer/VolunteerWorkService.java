@@ -1,29 +1,36 @@
 package com.chiguirongos.backend.services.volunteer;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.WorkPageDTO;
 import com.chiguirongos.backend.dtos.responsesDTO.WorkSessionDTO;
 import com.chiguirongos.backend.exceptions.runtime.NonExistentWorkSessionException;
 import com.chiguirongos.backend.exceptions.runtime.UnauthorizedUserAccessException;
 import com.chiguirongos.backend.models.users.UserEntity;
-import com.chiguirongos.backend.models.utils.ModelsConstants;
 import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.models.utils.WeekHourMask;
 import com.chiguirongos.backend.models.works.WorkEntity;
 import com.chiguirongos.backend.models.works.WorkSessionEntity;
 import com.chiguirongos.backend.repositories.PostulationRepository;
-import com.chiguirongos.backend.repositories.WorkInstanceRepository;
 import com.chiguirongos.backend.repositories.WorkRepository;
-import com.chiguirongos.backend.repositories.WorkSessionRepository;
+import com.chiguirongos.backend.repositories.projections.WorkFeedKey;
+import com.chiguirongos.backend.services.cache.CachedWork;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+import com.chiguirongos.backend.services.sessions.WorkSessionResolver;
 
 @Service
 public class VolunteerWorkService {
@@ -31,11 +38,21 @@ public class VolunteerWorkService {
     @Autowired
     private WorkRepository works;
     @Autowired
-    private WorkInstanceRepository workInstances;
-    @Autowired
-    private WorkSessionRepository workSessions;
+    private WorkSessionResolver workSessions;
     @Autowired
     private PostulationRepository postulations;
+    @Autowired
+    private MonthWorksCache monthWorks;
+    @Autowired
+    private VolunteerWorkRanker ranker;
+    @Value("${works.feed.page-size}")
+    private Integer defaultFeedPageSize;
+    @Value("${works.feed.max-page-size}")
+    private Integer maxFeedPageSize;
+
+    // Prefixes of the feed cursors, depending on whether the feed only has preferred works
+    private static final String PREFERRED_CURSOR = "P";
+    private static final String ALL_CURSOR = "A";
 
     /**
      * Get all works available in a certain month and year
@@ -48,43 +65,21 @@ public class VolunteerWorkService {
         LocalDate monthStart = LocalDate.of(year, month, 1);
         LocalDate monthEnd = LocalDate.of(year, month, monthStart.getMonth().length(monthStart.isLeapYear()));
 
-        Set<WorkEntity> volunteerWorks = works.findWorksBetweenDates(monthStart, monthEnd);
+        List<CachedWork> volunteerWorks = monthWorks.getMonthWorks(YearMonth.of(year, month));
         if (volunteerWorks.isEmpty())
             return new ArrayList<>();
 
+        Set<Long> postulatedWorks = getPostulatedWorkIds(volunteer, monthStart, monthEnd);
+
         List<WorkDTO> responses = new ArrayList<>();
-        for (WorkEntity work : volunteerWorks) {
-            Long instancesNumber = workInstances.countByWorkId(work);
-            Boolean isPostulated = postulations.existsByVolunteerAndWorkAndStatusIn(volunteer, work,
-                    List.of(PostulationStatusEnum.PENDING, PostulationStatusEnum.ACCEPTED));
+        for (CachedWork work : volunteerWorks) {
+            Boolean isPostulated = postulatedWorks.contains(work.getWorkId());
 
-            if (work.getVolunteersNeeded() <= instancesNumber && !isPostulated)
+            // Full works are only shown to their postulated volunteers
+            if (!work.isVisibleTo(isPostulated))
                 continue;
 
-            List<WorkHourBlockDTO> blocks = work.getWorkHourBlocks()
-                    .stream()
-                    .map((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()))
-                    .toList();
-
-            List<String> tags = work.getWorkTags()
-                    .stream()
-                    .map((t) -> t.getName())
-                    .toList();
-
-            responses.add(WorkDTO.builder()
-                    .id(work.getWorkId())
-                    .name(work.getName())
-                    .description(work.getDescription())
-                    .type(work.getType())
-                    .startDate(work.getStartDate())
-                    .endDate(work.getEndDate())
-                    .volunteersNeeded(work.getVolunteersNeeded())
-                    .hours(blocks)
-                    .tags(tags)
-                    .supplierName(work.getSupplierId().getName())
-                    .supplierUsername(work.getSupplierId().getUserName())
-                    .isPostulated(isPostulated)
-                    .build());
+            responses.add(workToDTO(work, isPostulated));
         }
 
         return responses;
@@ -110,58 +105,36 @@ public class VolunteerWorkService {
         LocalDate monthEnd = LocalDate.of(year, month, monthStart.getMonth().length(monthStart.isLeapYear()));
 
         // First we get the works in the month and year
-        Set<WorkEntity> volunteerWorks = works.findWorksBetweenDates(monthStart, monthEnd);
+        List<CachedWork> volunteerWorks = monthWorks.getMonthWorks(YearMonth.of(year, month));
         if (volunteerWorks.isEmpty())
             return new ArrayList<>();
 
+        Set<Long> postulatedWorks = getPostulatedWorkIds(volunteer, monthStart, monthEnd);
+
+        WeekHourMask prefMask = preferredBlocksMask(prefBlocks);
+
         /**
          * Next we filter them by checking out if they have a hour block that matches
-         * one of the user preferred blocks
+         * one of the user preferred blocks. The works that don't match are kept
+         * apart in case no work matches.
          */
         List<WorkDTO> responses = new ArrayList<>();
-        for (WorkEntity work : volunteerWorks) {
-            Long instancesNumber = workInstances.countByWorkId(work);
+        List<WorkDTO> notPreferred = new ArrayList<>();
+        for (CachedWork work : volunteerWorks) {
             // Check if the volunteer has a postulation to this work
-            Boolean isPostulated = postulations.existsByVolunteerAndWorkAndStatusIn(volunteer, work,
-                    List.of(PostulationStatusEnum.PENDING, PostulationStatusEnum.ACCEPTED));
-            if (work.getVolunteersNeeded() <= instancesNumber && !isPostulated)
-                continue;
+            Boolean isPostulated = postulatedWorks.contains(work.getWorkId());
 
-            Boolean matchingBlock = false;
-            for (UserHourBlockDTO phb : prefBlocks) {
-                if (hasMatchingBlock(work, phb.getWeekDay(), phb.getHourBlock()) || isPostulated) {
-                    matchingBlock = true;
-                    break;
-                }
-            }
+            // Full works are only shown to their postulated volunteers
+            if (!work.isVisibleTo(isPostulated))
+                continue;
 
-            if (!matchingBlock)
+            if (!isPostulated && !work.getHourMask().intersects(prefMask)) {
+                if (responses.isEmpty())
+                    notPreferred.add(workToDTO(work, isPostulated));
                 continue;
+            }
 
-            List<WorkHourBlockDTO> blocks = work.getWorkHourBlocks()
-                    .stream()
-                    .map((hb) -> new WorkHourBlockDTO(hb.getHourBlock(), hb.getWeekDay()))
-                    .toList();
-
-            List<String> tags = work.getWorkTags()
-                    .stream()
-                    .map((t) -> t.getName())
-                    .toList();
-
-            responses.add(WorkDTO.builder()
-                    .id(work.getWorkId())
-                    .name(work.getName())
-                    .description(work.getDescription())
-                    .type(work.getType())
-                    .startDate(work.getStartDate())
-                    .endDate(work.getEndDate())
-                    .volunteersNeeded(work.getVolunteersNeeded())
-                    .hours(blocks)
-                    .tags(tags)
-                    .supplierName(work.getSupplierId().getName())
-                    .supplierUsername(work.getSupplierId().getUserName())
-                    .isPostulated(isPostulated)
-                    .build());
+            responses.add(workToDTO(work, isPostulated));
         }
 
         /**
@@ -169,11 +142,154 @@ public class VolunteerWorkService {
          * all the jobs in that month and year.
          */
         if (responses.size() == 0)
-            return getVolunteersWorksInMonthYear(volunteer, month, year);
+            return notPreferred;
 
         return responses;
     }
 
+    /**
+     * Get a page of the works available in a certain month and year that have a
+     * hour block match with specific preferred hour blocks from an user. If no
+     * work matches, the pages contain all the works available in the month.
+     * Works are paginated with a cursor: the first page is requested without
+     * it, and every page returns the cursor of the next one.
+     * 
+     * @param prefBlocks User preferred hour blocks
+     * @param month      Month to retrieve works from
+     * @param year       Year to retrieve works from
+     * @param cursor     Cursor returned by the previous page, null for the first
+     *                   page
+     * @param pageSize   Maximum number of works in the page, null for the
+     *                   default page size
+     * @return Page of works available in a certain month and year
+     */
+    public WorkPageDTO getVolunteerPreferredWorksPage(UserEntity volunteer,
+            List<UserHourBlockDTO> prefBlocks,
+            Integer month,
+            Integer year,
+            String cursor,
+            Integer pageSize) {
+
+        LocalDate monthStart = LocalDate.of(year, month, 1);
+        LocalDate monthEnd = LocalDate.of(year, month, monthStart.getMonth().length(monthStart.isLeapYear()));
+
+        if (pageSize == null)
+            pageSize = defaultFeedPageSize;
+
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Page size must be positive");
+
+        pageSize = Math.min(pageSize, maxFeedPageSize);
+
+        Boolean onlyPreferred = false;
+        Long afterWorkId = 0l;
+        if (cursor != null) {
+            String[] cursorParts = cursor.split(":");
+            if (cursorParts.length != 2
+                    || !(cursorParts[0].equals(PREFERRED_CURSOR) || cursorParts[0].equals(ALL_CURSOR)))
+                throw new IllegalArgumentException("Invalid works feed cursor");
+
+            onlyPreferred = cursorParts[0].equals(PREFERRED_CURSOR);
+            try {
+                afterWorkId = Long.parseLong(cursorParts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid works feed cursor");
+            }
+        }
+
+        // One extra work is retrieved to know if there is a next page
+        WeekHourMask prefMask = preferredBlocksMask(prefBlocks);
+        List<WorkFeedKey> keys = works.findVolunteerFeedPage(monthStart, monthEnd, volunteer.getUserId(),
+                prefMask.getMaskWord0(), prefMask.getMaskWord1(), prefMask.getMaskWord2(),
+                onlyPreferred, afterWorkId, pageSize + 1);
+
+        if (keys.isEmpty())
+            return new WorkPageDTO(new ArrayList<>(), null, onlyPreferred);
+
+        /**
+         * Matching works are sorted first, so on the first page a matching work
+         * means the whole feed only contains matching works. Otherwise the feed
+         * falls back to all the works of the month.
+         */
+        if (cursor == null && keys.get(0).getFeedRank().equals(0))
+            onlyPreferred = true;
+
+        if (onlyPreferred)
+            keys = keys.stream().filter((k) -> k.getFeedRank().equals(0)).toList();
+
+        Boolean hasNextPage = keys.size() > pageSize;
+        if (hasNextPage)
+            keys = keys.subList(0, pageSize);
+
+        Map<Long, CachedWork> pageWorks = monthWorks.getMonthWorks(YearMonth.of(year, month))
+                .stream()
+                .collect(Collectors.toMap((w) -> w.getWorkId(), (w) -> w, (a, b) -> a, HashMap::new));
+
+        // Works committed after the month was cached are read from the database
+        List<Long> missingWorks = keys.stream()
+                .map((k) -> k.getWorkId())
+                .filter((id) -> !pageWorks.containsKey(id))
+                .toList();
+        if (!missingWorks.isEmpty())
+            works.findByWorkIdIn(missingWorks).forEach((w) -> pageWorks.put(w.getWorkId(), new CachedWork(w)));
+
+        List<WorkDTO> responses = new ArrayList<>();
+        for (WorkFeedKey key : keys) {
+            CachedWork work = pageWorks.get(key.getWorkId());
+            if (work != null)
+                responses.add(workToDTO(work, key.getPostulated()));
+        }
+
+        String nextCursor = null;
+        if (hasNextPage)
+            nextCursor = (onlyPreferred ? PREFERRED_CURSOR : ALL_CURSOR) + ":"
+                    + keys.get(keys.size() - 1).getWorkId();
+
+        return new WorkPageDTO(responses, nextCursor, onlyPreferred);
+    }
+
+    /**
+     * Get the best works available in a certain month and year for a volunteer,
+     * ranked by their tags, hour blocks and remaining capacity against the
+     * volunteer preferences.
+     * 
+     * @param volunteer Volunteer to rank the works for
+     * @param month     Month to retrieve works from
+     * @param year      Year to retrieve works from
+     * @param limit     Maximum number of works to return, null for the default
+     *                  page size
+     * @return The best works available in a certain month and year, sorted from
+     *         best to worst
+     */
+    public List<WorkDTO> getVolunteerRankedWorks(UserEntity volunteer, Integer month, Integer year, Integer limit) {
+        LocalDate monthStart = LocalDate.of(year, month, 1);
+        LocalDate monthEnd = LocalDate.of(year, month, monthStart.getMonth().length(monthStart.isLeapYear()));
+
+        if (limit == null)
+            limit = defaultFeedPageSize;
+
+        if (limit <= 0)
+            throw new IllegalArgumentException("The number of works must be positive");
+
+        limit = Math.min(limit, maxFeedPageSize);
+
+        List<CachedWork> volunteerWorks = monthWorks.getMonthWorks(YearMonth.of(year, month));
+        if (volunteerWorks.isEmpty())
+            return new ArrayList<>();
+
+        Set<Long> postulatedWorks = getPostulatedWorkIds(volunteer, monthStart, monthEnd);
+
+        // Full works are only shown to their postulated volunteers
+        List<CachedWork> visibleWorks = volunteerWorks.stream()
+                .filter((w) -> w.isVisibleTo(postulatedWorks.contains(w.getWorkId())))
+                .toList();
+
+        return ranker.rankTopWorks(volunteer, visibleWorks, limit)
+                .stream()
+                .map((w) -> workToDTO(w, postulatedWorks.contains(w.getWorkId())))
+                .toList();
+    }
+
     /**
      * Gets the work sessions status of a volunteer in a specific month and year.
      * 
@@ -186,7 +302,7 @@ public class VolunteerWorkService {
     public List<WorkSessionDTO> getVolunteerWorkSessions(UserEntity volunteer, Integer month, Integer year) {
         LocalDate monthStart = LocalDate.of(year, month, 1);
         LocalDate monthEnd = LocalDate.of(year, month, monthStart.getMonth().length(monthStart.isLeapYear()));
-        Set<WorkSessionEntity> sessions = workSessions.findVolunteerWorkSessionsBetweenDates(volunteer, monthStart,
+        List<WorkSessionEntity> sessions = workSessions.findVolunteerWorkSessionsBetweenDates(volunteer, monthStart,
                 monthEnd);
 
         List<WorkSessionDTO> dtos = new ArrayList<>();
@@ -241,32 +357,54 @@ public class VolunteerWorkService {
     }
 
     /**
-     * Calculates if the work has a matching block in a specific day of
-     * the week and an hour block.
+     * Retrieves the ids of the works between two dates the volunteer has an
+     * active postulation to, in a single query.
      * 
-     * @param weekDay Week day to match
-     * @param hour    Hour block to match
-     * @return True if the work has a matching block.
+     * @param volunteer Volunteer to check the postulations from
+     * @param start     Start date
+     * @param end       End date
+     * @return Ids of the works postulated by the volunteer
      */
-    private Boolean hasMatchingBlock(WorkEntity work, Integer weekDay, LocalTime hour) {
-
-        switch (work.getType()) {
-            case ModelsConstants.WORK_TYPE_SESSION:
-
-                if (!weekDay.equals(work.getStartDate().getDayOfWeek().getValue() % 7))
-                    return false;
+    private Set<Long> getPostulatedWorkIds(UserEntity volunteer, LocalDate start, LocalDate end) {
+        return postulations.findVolunteerPostulatedWorkIdsBetweenDates(volunteer, start, end,
+                List.of(PostulationStatusEnum.PENDING, PostulationStatusEnum.ACCEPTED));
+    }
 
-                return work.getWorkHourBlocks().stream().anyMatch((hb) -> {
-                    return hb.getHourBlock().getHour() == hour.getHour();
-                });
+    /**
+     * Builds the weekly mask of a list of preferred hour blocks
+     * 
+     * @param prefBlocks User preferred hour blocks
+     * @return Mask with the preferred hour blocks
+     */
+    private WeekHourMask preferredBlocksMask(List<UserHourBlockDTO> prefBlocks) {
+        WeekHourMask prefMask = new WeekHourMask();
+        for (UserHourBlockDTO phb : prefBlocks)
+            prefMask.set(phb.getWeekDay(), phb.getHourBlock().getHour());
 
-            case ModelsConstants.WORK_TYPE_RECURRING:
-                return work.getWorkHourBlocks().stream().anyMatch((hb) -> {
-                    return weekDay.equals(hb.getWeekDay()) && hb.getHourBlock().getHour() == hour.getHour();
-                });
+        return prefMask;
+    }
 
-            default:
-                throw new IllegalArgumentException("Wrong work type found: " + work.getType());
-        }
+    /**
+     * Builds the DTO of a work shown in the volunteer feed
+     * 
+     * @param work         Work to convert
+     * @param isPostulated True if the volunteer has a postulation to the work
+     * @return DTO with the work information
+     */
+    private WorkDTO workToDTO(CachedWork work, Boolean isPostulated) {
+        return WorkDTO.builder()
+                .id(work.getWorkId())
+                .name(work.getName())
+                .description(work.getDescription())
+                .type(work.getType())
+                .startDate(work.getStartDate())
+                .endDate(work.getEndDate())
+                .volunteersNeeded(work.getVolunteersNeeded())
+                .hours(work.getHours())
+                .tags(work.getTags())
+                .supplierName(work.getSupplierName())
+                .supplierUsername(work.getSupplierUsername())
+                .isPostulated(isPostulated)
+                .build();
     }
 }
@@ -0,0 +1,105 @@
+package com.chiguirongos.backend;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.CreateWorkDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.supplier.SupplierWorkService;
+
+/**
+ * Creates the users and works used by the integration tests. Every user and
+ * work gets an unique name, so tests never collide on the shared database.
+ */
+public class TestData {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis() % 1_000_000_000l);
+
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private SupplierWorkService supplierWorks;
+
+    /**
+     * Builds a name no other test uses
+     * 
+     * @param prefix Start of the name
+     * @return Unique name
+     */
+    public static String uniqueName(String prefix) {
+        return prefix + SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * Builds an hour block of a work
+     * 
+     * @param weekDay Week day of the block, -1 for session works
+     * @param hour    Hour of the block
+     * @return DTO of the block
+     */
+    public static WorkHourBlockDTO block(int weekDay, int hour) {
+        return new WorkHourBlockDTO(LocalTime.of(hour, 0), weekDay);
+    }
+
+    public UserEntity supplier() {
+        return user(ModelsConstants.SUPPLIER_ROLE);
+    }
+
+    public UserEntity volunteer() {
+        return user(ModelsConstants.VOLUNTEER_ROLE);
+    }
+
+    /**
+     * Creates a recurring work tagged as "test" through the supplier service
+     * 
+     * @param supplier         Creator of the work
+     * @param start            Start date of the work
+     * @param end              End date of the work
+     * @param volunteersNeeded Slots of the work
+     * @param blocks           Hour blocks of the work
+     * @return The created work
+     */
+    public WorkEntity work(UserEntity supplier, LocalDate start, LocalDate end, long volunteersNeeded,
+            WorkHourBlockDTO... blocks) {
+        return work(supplier, ModelsConstants.WORK_TYPE_RECURRING, start, end, volunteersNeeded, List.of("test"),
+                blocks);
+    }
+
+    /**
+     * Creates a work through the supplier service
+     * 
+     * @param supplier         Creator of the work
+     * @param type             Type of the work
+     * @param start            Start date of the work
+     * @param end              End date of the work
+     * @param volunteersNeeded Slots of the work
+     * @param tags             Tags of the work
+     * @param blocks           Hour blocks of the work
+     * @return The created work
+     */
+    public WorkEntity work(UserEntity supplier, String type, LocalDate start, LocalDate end, long volunteersNeeded,
+            List<String> tags, WorkHourBlockDTO... blocks) {
+        String name = uniqueName("w");
+        supplierWorks.createSupplierWork(supplier, new CreateWorkDTO(name, "Test work", type, new ArrayList<>(tags),
+                start, end, volunteersNeeded, blocks));
+
+        return works.findByNameAndSupplierId(name, supplier);
+    }
+
+    private UserEntity user(String role) {
+        return users.save(new UserEntity(uniqueName("t"), "Test user", LocalDate.of(2000, 1, 1), "password", null,
+                role));
+    }
+}
@@ -0,0 +1,155 @@
+package com.chiguirongos.backend.models.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+class WeekHourMaskTests {
+
+    private static final int SCHEDULES = 20_000;
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    private Logger logger = LogManager.getLogger();
+
+    /**
+     * The masks must find the same conflicts as matching the hour blocks one by
+     * one, as the schedule checks did before the masks existed
+     */
+    @Test
+    void masksMatchBlockByBlockComparison() {
+        Random random = new Random(42);
+        for (int i = 0; i < SCHEDULES; i++) {
+            List<int[]> first = randomSchedule(random);
+            List<int[]> second = randomSchedule(random);
+            WeekHourMask firstMask = toMask(first);
+            WeekHourMask secondMask = toMask(second);
+
+            assertEquals(sharedBlocks(first, second) > 0, firstMask.intersects(secondMask));
+            assertEquals(sharedBlocks(first, second), firstMask.overlap(secondMask));
+            assertEquals(sharedBlocks(first, first), firstMask.size());
+        }
+    }
+
+    @Test
+    void everyHourOfTheWeekHasItsOwnBit() {
+        for (int weekDay = 0; weekDay < WeekHourMask.DAYS_PER_WEEK; weekDay++) {
+            for (int hour = 0; hour < WeekHourMask.HOURS_PER_DAY; hour++) {
+                WeekHourMask mask = new WeekHourMask();
+                mask.set(weekDay, hour);
+
+                assertEquals(1, mask.size());
+                for (int otherDay = 0; otherDay < WeekHourMask.DAYS_PER_WEEK; otherDay++)
+                    for (int otherHour = 0; otherHour < WeekHourMask.HOURS_PER_DAY; otherHour++)
+                        assertEquals(weekDay == otherDay && hour == otherHour, mask.contains(otherDay, otherHour));
+            }
+        }
+    }
+
+    @Test
+    void blocksOutsideTheWeekAreIgnored() {
+        WeekHourMask mask = new WeekHourMask();
+        mask.set(WeekDayEnum.NONE.getValue(), 8);
+        mask.set(WeekHourMask.DAYS_PER_WEEK, 8);
+        mask.set(1, WeekHourMask.HOURS_PER_DAY);
+
+        assertEquals(0, mask.size());
+    }
+
+    /**
+     * Times the schedule conflict check with masks against walking the hour
+     * blocks of both schedules, as it was done before the masks existed. The
+     * fastest of a few rounds is logged, so the first rounds warm up the JIT.
+     */
+    @Test
+    void maskConflictCheckBenchmark() {
+        Random random = new Random(7);
+        List<List<int[]>> schedules = new ArrayList<>();
+        List<WeekHourMask> masks = new ArrayList<>();
+        for (int i = 0; i < SCHEDULES; i++) {
+            schedules.add(randomSchedule(random));
+            masks.add(toMask(schedules.get(i)));
+        }
+
+        long fastestBlocks = Long.MAX_VALUE;
+        long fastestMasks = Long.MAX_VALUE;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            long start = System.nanoTime();
+            int blockConflicts = 0;
+            for (int i = 1; i < SCHEDULES; i++)
+                if (anySharedBlock(schedules.get(i - 1), schedules.get(i)))
+                    blockConflicts++;
+            fastestBlocks = Math.min(fastestBlocks, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int maskConflicts = 0;
+            for (int i = 1; i < SCHEDULES; i++)
+                if (masks.get(i - 1).intersects(masks.get(i)))
+                    maskConflicts++;
+            fastestMasks = Math.min(fastestMasks, System.nanoTime() - start);
+
+            assertEquals(blockConflicts, maskConflicts);
+        }
+
+        logger.info("Checked {} schedule pairs in {} us walking blocks and in {} us with masks", SCHEDULES - 1,
+                fastestBlocks / 1000, fastestMasks / 1000);
+    }
+
+    /**
+     * Checks if two schedules share a block, comparing every block of one with
+     * every block of the other
+     */
+    private static boolean anySharedBlock(List<int[]> first, List<int[]> second) {
+        for (int[] a : first)
+            for (int[] b : second)
+                if (a[0] == b[0] && a[1] == b[1])
+                    return true;
+
+        return false;
+    }
+
+    /**
+     * Counts the distinct blocks two schedules share, comparing every block of
+     * one with every block of the other
+     */
+    private static int sharedBlocks(List<int[]> first, List<int[]> second) {
+        List<int[]> shared = new ArrayList<>();
+        for (int[] a : first) {
+            for (int[] b : second) {
+                if (a[0] != b[0] || a[1] != b[1])
+                    continue;
+
+                boolean counted = false;
+                for (int[] s : shared)
+                    counted |= s[0] == a[0] && s[1] == a[1];
+                if (!counted)
+                    shared.add(a);
+            }
+        }
+
+        return shared.size();
+    }
+
+    private static List<int[]> randomSchedule(Random random) {
+        List<int[]> blocks = new ArrayList<>();
+        int size = random.nextInt(12);
+        for (int i = 0; i < size; i++)
+            blocks.add(new int[] { random.nextInt(WeekHourMask.DAYS_PER_WEEK),
+                    random.nextInt(WeekHourMask.HOURS_PER_DAY) });
+
+        return blocks;
+    }
+
+    private static WeekHourMask toMask(List<int[]> blocks) {
+        WeekHourMask mask = new WeekHourMask();
+        for (int[] block : blocks)
+            mask.set(block[0], block[1]);
+
+        return mask;
+    }
+}
@@ -0,0 +1,94 @@
+package com.chiguirongos.backend.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.EditPreferencesDTO;
+import com.chiguirongos.backend.models.tags.TagEntity;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.services.cache.TagRegistry;
+import com.chiguirongos.backend.services.volunteer.VolunteerDetailsService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+class UserRepositoryTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private TagRegistry tagRegistry;
+    @Autowired
+    private VolunteerDetailsService volunteerDetails;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void linkAndUnlinkWriteOnlyTheirJoinRows() {
+        UserEntity volunteer = data.volunteer();
+        Map<String, Long> tagIds = tagRegistry.resolveTagIds(List.of("linked", "unlinked"));
+
+        transaction.executeWithoutResult((status) -> {
+            assertEquals(2, users.linkTags(volunteer.getUserId(), tagIds.values()));
+            // Tags the user already has are skipped
+            assertEquals(0, users.linkTags(volunteer.getUserId(), tagIds.values()));
+            assertEquals(1, users.unlinkTags(volunteer.getUserId(), List.of(tagIds.get("unlinked"))));
+        });
+
+        assertEquals(List.of("linked"), tagNames(volunteer));
+    }
+
+    @Test
+    void preferencesEditDoesntLoadTheUsersOfItsTags() {
+        UserEntity volunteer = data.volunteer();
+        // Other users share the tags, so loading their inverse side would read them
+        UserEntity other = data.volunteer();
+        editTags(other, List.of("test", "retagged"));
+        editTags(volunteer, List.of("test"));
+
+        long loadsBefore = inverseLoads();
+
+        editTags(volunteer, List.of("retagged"));
+
+        assertEquals(loadsBefore, inverseLoads());
+        assertEquals(List.of("retagged"), tagNames(volunteer));
+    }
+
+    private void editTags(UserEntity volunteer, List<String> tags) {
+        transaction.executeWithoutResult((status) -> volunteerDetails.editUserPreferences(
+                users.findByUserName(volunteer.getUserName()), new EditPreferencesDTO(tags, List.of())));
+    }
+
+    /**
+     * Counts the loads of the users side of the tags
+     */
+    private long inverseLoads() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getCollectionStatistics(TagEntity.class.getName() + ".taggedUser").getLoadCount();
+    }
+
+    private List<String> tagNames(UserEntity user) {
+        return jdbcTemplate.queryForList("""
+                select t.name
+                from user_tags ut
+                join tag_entity t on t.tag_id = ut.tag_id
+                    where ut.user_id = ?
+                order by t.name
+                """, String.class, user.getUserId());
+    }
+}
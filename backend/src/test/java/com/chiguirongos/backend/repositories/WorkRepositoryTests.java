@@ -0,0 +1,101 @@
+package com.chiguirongos.backend.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.EditWorkDTO;
+import com.chiguirongos.backend.models.tags.TagEntity;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.services.cache.TagRegistry;
+import com.chiguirongos.backend.services.supplier.SupplierWorkService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+class WorkRepositoryTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 8);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private TagRegistry tagRegistry;
+    @Autowired
+    private SupplierWorkService supplierWorks;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void linkAndUnlinkWriteOnlyTheirJoinRows() {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8));
+        Map<String, Long> tagIds = tagRegistry.resolveTagIds(List.of("linked", "unlinked"));
+
+        transaction.executeWithoutResult((status) -> {
+            assertEquals(2, works.linkTags(work.getWorkId(), tagIds.values()));
+            // Tags the work already has are skipped
+            assertEquals(0, works.linkTags(work.getWorkId(), tagIds.values()));
+            assertEquals(1, works.unlinkTags(work.getWorkId(), List.of(tagIds.get("unlinked"))));
+        });
+
+        assertEquals(List.of("linked", "test"), tagNames(work));
+    }
+
+    @Test
+    void editDoesntLoadTheWorksOfItsTags() {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(2, 9));
+        // Other works share the tags, so loading their inverse side would read them
+        data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l, TestData.block(3, 9));
+
+        long loadsBefore = inverseLoads();
+
+        supplierWorks.editSupplierWork(supplier, new EditWorkDTO(work.getName(), null, "Retagged work",
+                ModelsConstants.WORK_TYPE_RECURRING, new ArrayList<>(List.of("retagged")), work.getStartDate(),
+                work.getEndDate(), 2l, new WorkHourBlockDTO[] { TestData.block(2, 9) }));
+
+        assertEquals(loadsBefore, inverseLoads());
+        assertEquals(List.of("retagged"), tagNames(work));
+    }
+
+    /**
+     * Counts the loads of the works side of the tags
+     */
+    private long inverseLoads() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getCollectionStatistics(TagEntity.class.getName() + ".taggedWorks").getLoadCount();
+    }
+
+    private List<String> tagNames(WorkEntity work) {
+        return jdbcTemplate.queryForList("""
+                select t.name
+                from work_tags wt
+                join tag_entity t on t.tag_id = wt.tag_id
+                    where wt.work_id = ?
+                order by t.name
+                """, String.class, work.getWorkId());
+    }
+}
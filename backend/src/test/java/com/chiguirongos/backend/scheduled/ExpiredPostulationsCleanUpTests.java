@@ -0,0 +1,70 @@
+package com.chiguirongos.backend.scheduled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.models.postulations.PostulationEntity;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.services.volunteer.VolunteerPostulationService;
+
+class ExpiredPostulationsCleanUpTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 11);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private ExpiredPostulationsCleanUp cleanUp;
+    @Autowired
+    private VolunteerPostulationService volunteerPostulations;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void postulationsOfDeletedSuppliersDontBreakTheCleanUp() {
+        UserEntity supplier = data.supplier();
+        UserEntity deletedSupplier = data.supplier();
+        Long expired = expiredPostulation(supplier);
+        Long left = expiredPostulation(deletedSupplier);
+
+        // Deleted suppliers keep their works until the purge runs
+        jdbcTemplate.update("update user_entity set deleted = true where user_id = ?", deletedSupplier.getUserId());
+
+        cleanUp.cleanExpiredPendingPostulations();
+
+        assertEquals(PostulationStatusEnum.REJECTED, postulations.findById(expired).get().getStatus());
+        assertEquals(PostulationStatusEnum.PENDING, postulations.findById(left).get().getStatus());
+    }
+
+    /**
+     * Creates a pending postulation, moving its end date to the past
+     * 
+     * @return Id of the postulation
+     */
+    private Long expiredPostulation(UserEntity supplier) {
+        UserEntity volunteer = data.volunteer();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8));
+        volunteerPostulations.postulateUser(volunteer, new CreatePostulationDTO(work.getStartDate(),
+                work.getEndDate(), work.getName(), supplier.getUserName()));
+
+        PostulationEntity postulation = postulations.findByVolunteerAndWorkId(volunteer, work.getWorkId());
+        jdbcTemplate.update("update postulation_entity set end_date = current_date - 1 where postulation_id = ?",
+                postulation.getPostulationId());
+        return postulation.getPostulationId();
+    }
+}
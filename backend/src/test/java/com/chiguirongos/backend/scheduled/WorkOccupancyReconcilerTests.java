@@ -0,0 +1,95 @@
+package com.chiguirongos.backend.scheduled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.supplier.SupplierPostulationService;
+import com.chiguirongos.backend.services.volunteer.VolunteerPostulationService;
+
+class WorkOccupancyReconcilerTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 7);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private WorkOccupancyReconciler reconciler;
+    @Autowired
+    private VolunteerPostulationService volunteerPostulations;
+    @Autowired
+    private SupplierPostulationService supplierPostulations;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void driftedCountersAreRepaired() throws Exception {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 3l,
+                TestData.block(1, 8));
+        UserEntity accepted = postulate(supplier, work);
+        UserEntity rejected = postulate(supplier, work);
+        postulate(supplier, work);
+        supplierPostulations.acceptUserPostulation(supplier,
+                postulations.findByVolunteerAndWorkId(accepted, work.getWorkId()).getPostulationId());
+        supplierPostulations.rejectUserPostulation(supplier,
+                postulations.findByVolunteerAndWorkId(rejected, work.getWorkId()).getPostulationId());
+
+        jdbcTemplate.update("""
+                update work_entity
+                    set filled_slots = 3, pending_postulations = 0, accepted_postulations = 5,
+                        rejected_postulations = null
+                    where work_id = ?
+                """, work.getWorkId());
+
+        reconciler.reconcileCounters();
+
+        WorkEntity repaired = works.findById(work.getWorkId()).get();
+        assertEquals(1l, repaired.getFilledSlots());
+        assertEquals(1l, repaired.getPendingPostulations());
+        assertEquals(1l, repaired.getAcceptedPostulations());
+        assertEquals(1l, repaired.getRejectedPostulations());
+    }
+
+    @Test
+    void consistentCountersAreLeftAlone() throws Exception {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(2, 9));
+        UserEntity accepted = postulate(supplier, work);
+        supplierPostulations.acceptUserPostulation(supplier,
+                postulations.findByVolunteerAndWorkId(accepted, work.getWorkId()).getPostulationId());
+
+        reconciler.reconcileCounters();
+
+        WorkEntity reconciled = works.findById(work.getWorkId()).get();
+        assertEquals(1l, reconciled.getFilledSlots());
+        assertEquals(0l, reconciled.getPendingPostulations());
+        assertEquals(1l, reconciled.getAcceptedPostulations());
+        assertEquals(0l, reconciled.getRejectedPostulations());
+    }
+
+    private UserEntity postulate(UserEntity supplier, WorkEntity work) {
+        UserEntity volunteer = data.volunteer();
+        volunteerPostulations.postulateUser(volunteer, new CreatePostulationDTO(work.getStartDate(),
+                work.getEndDate(), work.getName(), supplier.getUserName()));
+
+        return volunteer;
+    }
+}
@@ -0,0 +1,128 @@
+package com.chiguirongos.backend.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.EditUserDetailsDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.services.deletion.UserPurgeService;
+
+class AdminServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 10);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private AdminService admin;
+    @Autowired
+    private UserPurgeService purgeService;
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void editOnlyReplacesChangedVolunteerPreferences() {
+        UserEntity volunteer = data.volunteer();
+        admin.editUser(details(volunteer, List.of("test", "old"), block(1, 8), block(3, 8)));
+        Map<String, Long> before = blockIds(volunteer);
+
+        admin.editUser(details(volunteer, List.of("test", "new"), block(1, 8), block(5, 9)));
+
+        Map<String, Long> after = blockIds(volunteer);
+        assertEquals(2, after.size());
+        assertEquals(before.get("1@08:00"), after.get("1@08:00"));
+        assertFalse(after.containsKey("3@08:00"));
+        assertFalse(before.containsValue(after.get("5@09:00")));
+        assertEquals(List.of("new", "test"), tagNames(volunteer));
+    }
+
+    @Test
+    void supplierDemotedAndPromotedBackLosesOnlyItsOldWorks() {
+        UserEntity supplier = data.supplier();
+        WorkEntity oldWork = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8));
+
+        // Both changes happen before the purge of the supplier works runs
+        admin.editUser(details(supplier, ModelsConstants.VOLUNTEER_ROLE, List.of("test")));
+        admin.editUser(details(supplier, ModelsConstants.SUPPLIER_ROLE, List.of()));
+        assertEquals(0, count("work_entity", "work_id", oldWork.getWorkId()));
+
+        UserEntity promoted = users.findByUserName(supplier.getUserName());
+        assertTrue(promoted.getPurgePending());
+        assertFalse(promoted.getPurgeSupplierData());
+        assertTrue(promoted.getPurgeVolunteerData());
+
+        WorkEntity newWork = data.work(promoted, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(2, 8));
+        int chunks = 0;
+        while (!purgeService.purgeChunk(supplier.getUserId(), 2))
+            assertTrue(++chunks < 1000);
+
+        assertEquals(1, count("work_entity", "work_id", newWork.getWorkId()));
+        assertFalse(users.findByUserName(supplier.getUserName()).getPurgePending());
+    }
+
+    private long count(String table, String column, Long id) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where " + column + " = ?",
+                Long.class, id);
+    }
+
+    private List<String> tagNames(UserEntity user) {
+        return jdbcTemplate.queryForList("""
+                select t.name
+                from user_tags ut
+                join tag_entity t on t.tag_id = ut.tag_id
+                    where ut.user_id = ?
+                order by t.name
+                """, String.class, user.getUserId());
+    }
+
+    /**
+     * Reads the stored hour block rows of an user
+     * 
+     * @return Id of every block row, by week day and hour
+     */
+    private Map<String, Long> blockIds(UserEntity user) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("select id, week_day, hour_block from user_hour_blocks where user_id = ?",
+                (rs) -> {
+                    ids.put(rs.getInt("week_day") + "@" + rs.getTime("hour_block").toLocalTime(), rs.getLong("id"));
+                }, user.getUserId());
+
+        return ids;
+    }
+
+    private static EditUserDetailsDTO details(UserEntity user, List<String> tags, UserHourBlockDTO... blocks) {
+        return details(user, ModelsConstants.VOLUNTEER_ROLE, tags, blocks);
+    }
+
+    private static EditUserDetailsDTO details(UserEntity user, String role, List<String> tags,
+            UserHourBlockDTO... blocks) {
+        return new EditUserDetailsDTO(user.getUserName(), user.getName(), user.getBirthDate(),
+                user.getInstitutionalID(), role, tags, List.of(blocks));
+    }
+
+    private static UserHourBlockDTO block(int weekDay, int hour) {
+        return new UserHourBlockDTO(LocalTime.of(hour, 0), weekDay);
+    }
+}
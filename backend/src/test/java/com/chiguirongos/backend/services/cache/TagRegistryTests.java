@@ -0,0 +1,44 @@
+package com.chiguirongos.backend.services.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+
+class TagRegistryTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TagRegistry tagRegistry;
+
+    @Test
+    void newTagsShareAnIdBlock() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            names.add(TestData.uniqueName("tag"));
+
+        Map<String, Long> ids = tagRegistry.resolveTagIds(names);
+
+        assertEquals(10, new HashSet<>(ids.values()).size());
+        // Ids come from at most two sequence values, instead of one per tag
+        long first = ids.values().stream().mapToLong((id) -> id).min().getAsLong();
+        long last = ids.values().stream().mapToLong((id) -> id).max().getAsLong();
+        assertTrue(last - first < 100);
+        assertEquals(ids, tagRegistry.resolveTagIds(names));
+    }
+
+    @Test
+    void tooLongNamesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> tagRegistry.resolveTagIds(List.of("t".repeat(17))));
+        assertThrows(IllegalArgumentException.class, () -> tagRegistry.resolveTagIds(List.of(" ")));
+    }
+}
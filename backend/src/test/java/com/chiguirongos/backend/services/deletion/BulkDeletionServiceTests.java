@@ -0,0 +1,177 @@
+package com.chiguirongos.backend.services.deletion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.DeleteWorkDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.EditPreferencesDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.repositories.UserRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.AdminService;
+import com.chiguirongos.backend.services.sessions.WorkSessionGenerationService;
+import com.chiguirongos.backend.services.supplier.SupplierPostulationService;
+import com.chiguirongos.backend.services.supplier.SupplierWorkService;
+import com.chiguirongos.backend.services.volunteer.VolunteerDetailsService;
+import com.chiguirongos.backend.services.volunteer.VolunteerPostulationService;
+
+class BulkDeletionServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 9);
+
+    // Small enough for every purge step to take a few chunks
+    private static final int PURGE_CHUNK_SIZE = 2;
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private SupplierWorkService supplierWorks;
+    @Autowired
+    private SupplierPostulationService supplierPostulations;
+    @Autowired
+    private VolunteerPostulationService volunteerPostulations;
+    @Autowired
+    private VolunteerDetailsService volunteerDetails;
+    @Autowired
+    private WorkSessionGenerationService generationService;
+    @Autowired
+    private AdminService admin;
+    @Autowired
+    private UserPurgeService purgeService;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void workDeleteLeavesNoOrphanRows() throws Exception {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = occupiedWork(supplier, data.volunteer(), data.volunteer());
+        List<Long> instanceIds = instanceIds("work_id", work.getWorkId());
+
+        supplierWorks.deleteSupplierWork(supplier, new DeleteWorkDTO(work.getName()));
+
+        assertNoWorkRows(work, instanceIds);
+    }
+
+    @Test
+    void supplierPurgeLeavesNoOrphanRows() throws Exception {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = occupiedWork(supplier, data.volunteer(), data.volunteer());
+        List<Long> instanceIds = instanceIds("work_id", work.getWorkId());
+
+        admin.deleteUser(supplier.getUserName());
+        purge(supplier);
+
+        assertNoWorkRows(work, instanceIds);
+        assertNoUserRows(supplier);
+    }
+
+    @Test
+    void volunteerPurgeLeavesNoOrphanRows() throws Exception {
+        UserEntity supplier = data.supplier();
+        UserEntity accepted = data.volunteer();
+        UserEntity pending = data.volunteer();
+        transaction.executeWithoutResult((status) -> volunteerDetails.editUserPreferences(
+                users.findByUserName(accepted.getUserName()), new EditPreferencesDTO(List.of("test"),
+                        List.of(new UserHourBlockDTO(LocalTime.of(8, 0), 1)))));
+        WorkEntity work = occupiedWork(supplier, accepted, pending);
+        List<Long> instanceIds = instanceIds("volunteer_id", accepted.getUserId());
+
+        admin.deleteUser(accepted.getUserName());
+        purge(accepted);
+
+        for (Long instanceId : instanceIds)
+            assertEquals(0, count("work_session_entity", "work_inst_id", instanceId));
+        assertEquals(0, count("work_instance_entity", "volunteer_id", accepted.getUserId()));
+        assertEquals(0, count("postulation_entity", "user_id", accepted.getUserId()));
+        assertNoUserRows(accepted);
+
+        // The work only keeps the pending postulation
+        WorkEntity released = works.findById(work.getWorkId()).get();
+        assertEquals(0l, released.getFilledSlots());
+        assertEquals(1l, released.getPendingPostulations());
+        assertEquals(0l, released.getAcceptedPostulations());
+    }
+
+    /**
+     * Creates a tagged work with an accepted volunteer, whose sessions are
+     * stored, and a pending one
+     */
+    private WorkEntity occupiedWork(UserEntity supplier, UserEntity accepted, UserEntity pending)
+            throws Exception {
+        WorkEntity work = data.work(supplier, ModelsConstants.WORK_TYPE_RECURRING, WORK_MONTH.atDay(1),
+                WORK_MONTH.atEndOfMonth(), 2l, List.of("test", "deleted"), TestData.block(1, 8),
+                TestData.block(3, 8));
+
+        for (UserEntity volunteer : List.of(accepted, pending))
+            volunteerPostulations.postulateUser(volunteer, new CreatePostulationDTO(work.getStartDate(),
+                    work.getEndDate(), work.getName(), supplier.getUserName()));
+        supplierPostulations.acceptUserPostulation(supplier,
+                postulations.findByVolunteerAndWorkId(accepted, work.getWorkId()).getPostulationId());
+
+        // The scheduled job may have generated them already
+        List<Long> instanceIds = instanceIds("work_id", work.getWorkId());
+        instanceIds.forEach((id) -> generationService.generateSessions(id));
+
+        assertEquals(1, instanceIds.size());
+        assertTrue(count("work_session_entity", "work_inst_id", instanceIds.get(0)) > 0);
+        assertEquals(2, count("work_tags", "work_id", work.getWorkId()));
+        return work;
+    }
+
+    private void purge(UserEntity user) {
+        int chunks = 0;
+        while (!purgeService.purgeChunk(user.getUserId(), PURGE_CHUNK_SIZE))
+            assertTrue(++chunks < 1000);
+    }
+
+    private void assertNoWorkRows(WorkEntity work, List<Long> instanceIds) {
+        assertFalse(instanceIds.isEmpty());
+        for (Long instanceId : instanceIds)
+            assertEquals(0, count("work_session_entity", "work_inst_id", instanceId));
+
+        for (String table : List.of("work_instance_entity", "postulation_entity", "work_hour_blocks", "work_tags",
+                "work_entity"))
+            assertEquals(0, count(table, "work_id", work.getWorkId()), table);
+    }
+
+    private void assertNoUserRows(UserEntity user) {
+        for (String table : List.of("user_hour_blocks", "user_tags", "user_entity"))
+            assertEquals(0, count(table, "user_id", user.getUserId()), table);
+    }
+
+    private List<Long> instanceIds(String column, Long id) {
+        return jdbcTemplate.queryForList("select instance_id from work_instance_entity where " + column + " = ?",
+                Long.class, id);
+    }
+
+    private long count(String table, String column, Long id) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where " + column + " = ?",
+                Long.class, id);
+    }
+}
@@ -0,0 +1,149 @@
+package com.chiguirongos.backend.services.sessions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkSessionRepository;
+
+class WorkSessionBulkWriterTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 4);
+    private static final int BENCHMARK_SESSIONS = 10_000;
+
+    private Logger logger = LogManager.getLogger();
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private WorkSessionBulkWriter bulkWriter;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionRepository workSessions;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void copyStoresSessionsWithSequenceIds() {
+        writeAndCheckIds(true);
+    }
+
+    @Test
+    void batchInsertsStoreSessionsWithSequenceIds() {
+        writeAndCheckIds(false);
+    }
+
+    @Test
+    void bulkWritesAreFasterThanSaveAll() {
+        long copyMillis = timeBulkWrite(true);
+        long batchMillis = timeBulkWrite(false);
+
+        List<WorkSessionEntity> sessions = sessionsOf(newInstance(), BENCHMARK_SESSIONS);
+        long start = System.currentTimeMillis();
+        transaction.executeWithoutResult((status) -> workSessions.saveAll(sessions));
+        long saveAllMillis = System.currentTimeMillis() - start;
+
+        logger.info("Stored {} sessions: COPY {} ms, JDBC batch {} ms, saveAll {} ms", BENCHMARK_SESSIONS,
+                copyMillis, batchMillis, saveAllMillis);
+    }
+
+    /**
+     * Writes some sessions, checking that their ids come from the blocks of the
+     * sequence reserved by the write, and that the ids Hibernate assigns after
+     * it don't collide with them
+     */
+    private void writeAndCheckIds(boolean allowCopy) {
+        WorkInstanceEntity instance = newInstance();
+        List<WorkSessionEntity> sessions = sessionsOf(instance, 120);
+
+        long lastValueBefore = sequenceLastValue();
+        int written = transaction.execute((status) -> bulkWriter.writeSessions(sessions, allowCopy));
+        long lastValueAfter = sequenceLastValue();
+
+        assertEquals(sessions.size(), written);
+        assertEquals(sessions.size(), countSessions(instance));
+
+        Set<Long> bulkIds = new HashSet<>();
+        for (WorkSessionEntity ws : sessions) {
+            assertTrue(ws.getId() > lastValueBefore && ws.getId() <= lastValueAfter);
+            bulkIds.add(ws.getId());
+        }
+        assertEquals(sessions.size(), bulkIds.size());
+
+        // More than a block, so Hibernate reserves new ids from the sequence
+        List<WorkSessionEntity> hibernateSessions = sessionsOf(newInstance(), 60);
+        transaction.executeWithoutResult((status) -> workSessions.saveAll(hibernateSessions));
+        for (WorkSessionEntity ws : hibernateSessions)
+            assertFalse(bulkIds.contains(ws.getId()));
+    }
+
+    private long timeBulkWrite(boolean allowCopy) {
+        WorkInstanceEntity instance = newInstance();
+        List<WorkSessionEntity> sessions = sessionsOf(instance, BENCHMARK_SESSIONS);
+
+        long start = System.currentTimeMillis();
+        transaction.executeWithoutResult((status) -> bulkWriter.writeSessions(sessions, allowCopy));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(BENCHMARK_SESSIONS, countSessions(instance));
+        return elapsed;
+    }
+
+    private WorkInstanceEntity newInstance() {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8));
+        return workInstances.save(new WorkInstanceEntity(WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), work,
+                data.volunteer()));
+    }
+
+    /**
+     * Builds sessions of an instance, one per hour starting at the instance
+     * start date
+     */
+    private static List<WorkSessionEntity> sessionsOf(WorkInstanceEntity instance, int count) {
+        List<WorkSessionEntity> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDate date = instance.getStartDate().plusDays(i / 24);
+            sessions.add(new WorkSessionEntity(date.getDayOfWeek().getValue() % 7, date, LocalTime.of(i % 24, 0),
+                    instance));
+        }
+
+        return sessions;
+    }
+
+    private long sequenceLastValue() {
+        return jdbcTemplate.queryForObject("select last_value from work_session_entity_seq", Long.class);
+    }
+
+    private long countSessions(WorkInstanceEntity instance) {
+        return jdbcTemplate.queryForObject("select count(*) from work_session_entity where work_inst_id = ?",
+                Long.class, instance.getInstanceId());
+    }
+}
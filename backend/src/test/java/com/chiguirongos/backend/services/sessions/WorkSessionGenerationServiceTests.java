@@ -0,0 +1,110 @@
+package com.chiguirongos.backend.services.sessions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkSessionRepository;
+
+class WorkSessionGenerationServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 3);
+
+    @SpyBean
+    private WorkSessionBulkWriter bulkWriter;
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private WorkSessionGenerationService generationService;
+    @Autowired
+    private WorkSessionResolver resolver;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkSessionRepository workSessions;
+    @Autowired
+    private TransactionTemplate transaction;
+    @Value("${sessions.generation.max-attempts}")
+    private Integer maxAttempts;
+
+    @AfterEach
+    void restoreBulkWriter() {
+        reset(bulkWriter);
+    }
+
+    @Test
+    void failingInstancesFallBackToVirtualSessions() {
+        doThrow(new IllegalStateException("Sessions can't be written")).when(bulkWriter).writeSessions(any());
+
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8), TestData.block(4, 10));
+        Long instanceId = workInstances.save(new WorkInstanceEntity(WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(),
+                work, volunteer)).getInstanceId();
+
+        // The scheduled job may also be retrying the instance meanwhile
+        for (int attempt = 0; attempt < maxAttempts && isPending(instanceId); attempt++) {
+            try {
+                generationService.generateSessions(instanceId);
+            } catch (RuntimeException e) {
+                generationService.registerFailedAttempt(instanceId);
+            }
+        }
+
+        WorkInstanceEntity instance = workInstances.findById(instanceId).get();
+        assertEquals(SessionsGenerationStatusEnum.VIRTUAL, instance.getSessionsStatus());
+        assertTrue(workSessions.findVolunteerWorkSessionsBetweenDates(volunteer, WORK_MONTH.atDay(1),
+                WORK_MONTH.atEndOfMonth()).isEmpty());
+
+        List<WorkSessionEntity> sessions = transaction.execute((status) -> resolver
+                .findVolunteerWorkSessionsBetweenDates(volunteer, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth()));
+        assertFalse(sessions.isEmpty());
+        assertTrue(sessions.stream().allMatch((ws) -> ws.getId() < 0));
+    }
+
+    @Test
+    void failedInstancesAreRecoveredAsVirtual() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(2, 9));
+        WorkInstanceEntity failed = new WorkInstanceEntity(WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), work,
+                volunteer);
+        failed.setSessionsStatus(SessionsGenerationStatusEnum.FAILED);
+        Long instanceId = workInstances.save(failed).getInstanceId();
+
+        generationService.recoverFailedInstance(instanceId);
+
+        assertEquals(SessionsGenerationStatusEnum.VIRTUAL,
+                workInstances.findById(instanceId).get().getSessionsStatus());
+    }
+
+    private boolean isPending(Long instanceId) {
+        return workInstances.findById(instanceId).get().getSessionsStatus()
+                .equals(SessionsGenerationStatusEnum.PENDING);
+    }
+}
@@ -0,0 +1,86 @@
+package com.chiguirongos.backend.services.sessions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.utils.WeekDayEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.models.works.WorkHourBlocks;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+
+class WorkSessionPlannerTests {
+
+    private final WorkSessionPlanner planner = new WorkSessionPlanner();
+
+    @Test
+    void singleSundayHasItsSession() {
+        LocalDate sunday = LocalDate.of(2026, 10, 18);
+        WorkInstanceEntity instance = instance(LocalDate.of(2026, 10, 1), LocalDate.of(2026, 10, 31),
+                WeekDayEnum.SUNDAY);
+
+        Set<WorkSessionEntity> sessions = planner.planSessionsBetween(instance, sunday, sunday);
+
+        assertEquals(1, sessions.size());
+        assertEquals(sunday, sessions.iterator().next().getSessionDate());
+    }
+
+    @Test
+    void monthEndingOnSundayKeepsItsLastSunday() {
+        // May 2026 starts on a friday and ends on a sunday
+        WorkInstanceEntity instance = instance(LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 31),
+                WeekDayEnum.SUNDAY, WeekDayEnum.MONDAY);
+
+        Set<WorkSessionEntity> sessions = planner.planSessions(instance);
+
+        assertEquals(List.of(3, 10, 17, 24, 31), daysOfMonth(sessions, WeekDayEnum.SUNDAY));
+        assertEquals(List.of(4, 11, 18, 25), daysOfMonth(sessions, WeekDayEnum.MONDAY));
+    }
+
+    @Test
+    void everyWeekDayIsPlannedOnItsDates() {
+        WorkInstanceEntity instance = instance(LocalDate.of(2026, 2, 1), LocalDate.of(2026, 2, 28),
+                WeekDayEnum.SUNDAY, WeekDayEnum.MONDAY, WeekDayEnum.TUESDAY, WeekDayEnum.WEDNESDAY,
+                WeekDayEnum.THURSDAY, WeekDayEnum.FRIDAY, WeekDayEnum.SATURDAY);
+
+        // Every window start, so the first and last weeks are cut at every week day
+        for (int first = 1; first <= 7; first++) {
+            LocalDate from = LocalDate.of(2026, 2, first);
+            LocalDate to = LocalDate.of(2026, 2, 20 + first);
+            Set<WorkSessionEntity> sessions = planner.planSessionsBetween(instance, from, to);
+
+            assertEquals(to.getDayOfMonth() - from.getDayOfMonth() + 1, sessions.size());
+            for (WorkSessionEntity session : sessions) {
+                assertEquals(session.getSessionDate().getDayOfWeek().getValue() % 7, session.getSessionWeekDay());
+                assertTrue(!session.getSessionDate().isBefore(from) && !session.getSessionDate().isAfter(to));
+            }
+        }
+    }
+
+    private static List<Integer> daysOfMonth(Set<WorkSessionEntity> sessions, WeekDayEnum weekDay) {
+        return sessions.stream()
+                .filter((ws) -> ws.getSessionWeekDay().equals(weekDay.getValue()))
+                .map((ws) -> ws.getSessionDate().getDayOfMonth())
+                .sorted()
+                .toList();
+    }
+
+    private static WorkInstanceEntity instance(LocalDate start, LocalDate end, WeekDayEnum... weekDays) {
+        Set<WorkHourBlocks> blocks = new HashSet<>();
+        for (WeekDayEnum weekDay : weekDays)
+            blocks.add(new WorkHourBlocks(LocalTime.of(8, 0), weekDay.getValue()));
+
+        WorkEntity work = new WorkEntity("Planned work", "Planned work", ModelsConstants.WORK_TYPE_RECURRING, null,
+                start, end, 1l, new HashSet<>(), blocks);
+        return new WorkInstanceEntity(start, end, work, null);
+    }
+}
@@ -0,0 +1,133 @@
+package com.chiguirongos.backend.services.sessions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.SessionsGenerationStatusEnum;
+import com.chiguirongos.backend.models.utils.WorkSessionStatusEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.models.works.WorkInstanceEntity;
+import com.chiguirongos.backend.models.works.WorkSessionEntity;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+
+class WorkSessionResolverTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 6);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private WorkSessionResolver resolver;
+    @Autowired
+    private WorkSessionPlanner planner;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void reportsMergeStoredAndVirtualSessions() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8), TestData.block(3, 10));
+        WorkInstanceEntity virtual = new WorkInstanceEntity(WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), work,
+                volunteer);
+        virtual.setSessionsStatus(SessionsGenerationStatusEnum.VIRTUAL);
+        Long instanceId = workInstances.save(virtual).getInstanceId();
+
+        LocalDate start = WORK_MONTH.atDay(1);
+        LocalDate end = WORK_MONTH.atEndOfMonth();
+        transaction.executeWithoutResult((status) -> {
+            int planned = planner.planSessions(workInstances.findById(instanceId).get()).size();
+
+            // The status change of a virtual session stores it
+            WorkSessionEntity changed = resolver.findVolunteerWorkSessionsBetweenDates(volunteer, start, end).get(0);
+            Long virtualId = changed.getId();
+            Long storedId = resolver.saveStatus(changed, WorkSessionStatusEnum.ACCEPTED).getId();
+            assertTrue(virtualId < 0 && storedId > 0);
+
+            List<WorkSessionEntity> supplierReport = resolver.findSupplierWorkSessionBetweenDatesOrderByDateAndTime(
+                    List.of(supplier.getUserName()), start, end);
+            List<WorkSessionEntity> volunteerReport = resolver
+                    .findVolunteerWorkSessionsBetweenDatesOrderByDateAndTime(List.of(volunteer.getUserName()), start,
+                            end);
+
+            for (List<WorkSessionEntity> report : List.of(supplierReport, volunteerReport)) {
+                assertEquals(planned, report.size());
+                assertEquals(1, report.stream().filter((ws) -> ws.getId() > 0).count());
+                assertEquals(WorkSessionStatusEnum.ACCEPTED, report.stream()
+                        .filter((ws) -> ws.getId().equals(storedId))
+                        .findFirst().get().getStatus());
+                assertSortedWithoutDuplicates(report);
+            }
+
+            // The virtual id of the stored session resolves to the stored session
+            Map<Long, WorkSessionEntity> byId = resolver.findAllById(
+                    supplierReport.stream().map((ws) -> ws.getId() > 0 ? virtualId : ws.getId()).toList());
+            assertEquals(planned, byId.size());
+            assertEquals(storedId, byId.get(virtualId).getId());
+        });
+    }
+
+    @Test
+    void virtualSessionIsStoredOnce() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity work = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(2, 9));
+        WorkInstanceEntity virtual = new WorkInstanceEntity(WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), work,
+                volunteer);
+        virtual.setSessionsStatus(SessionsGenerationStatusEnum.VIRTUAL);
+        Long instanceId = workInstances.save(virtual).getInstanceId();
+
+        // Both changes read the session before any of them stores it
+        Long virtualId = transaction.execute((status) -> resolver
+                .findVolunteerWorkSessionsBetweenDates(volunteer, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth())
+                .get(0).getId());
+        WorkSessionEntity first = transaction.execute((status) -> resolver.findById(virtualId).get());
+        WorkSessionEntity second = transaction.execute((status) -> resolver.findById(virtualId).get());
+
+        transaction.executeWithoutResult(
+                (status) -> resolver.saveStatuses(List.of(first), WorkSessionStatusEnum.ACCEPTED));
+        transaction.executeWithoutResult(
+                (status) -> resolver.saveStatuses(List.of(second), WorkSessionStatusEnum.REJECTED));
+
+        assertTrue(first.getId() > 0);
+        assertEquals(first.getId(), second.getId());
+        assertEquals(List.of(WorkSessionStatusEnum.REJECTED.name()), jdbcTemplate.queryForList(
+                "select status from work_session_entity where work_inst_id = ?", String.class, instanceId));
+    }
+
+    private static void assertSortedWithoutDuplicates(List<WorkSessionEntity> report) {
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < report.size(); i++) {
+            WorkSessionEntity ws = report.get(i);
+            assertTrue(keys.add(ws.getSessionDate() + "/" + ws.getSessionTime()));
+            if (i > 0) {
+                WorkSessionEntity previous = report.get(i - 1);
+                assertTrue(previous.getSessionDate().isBefore(ws.getSessionDate())
+                        || (previous.getSessionDate().equals(ws.getSessionDate())
+                                && previous.getSessionTime().isBefore(ws.getSessionTime())));
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.chiguirongos.backend.services.supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
+import com.chiguirongos.backend.models.postulations.PostulationEntity;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.repositories.WorkInstanceRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.volunteer.VolunteerPostulationService;
+
+class SupplierPostulationServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 1);
+
+    private Logger logger = LogManager.getLogger();
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private SupplierPostulationService supplierPostulations;
+    @Autowired
+    private VolunteerPostulationService volunteerPostulations;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private WorkInstanceRepository workInstances;
+    @Autowired
+    private WorkRepository works;
+
+    @Test
+    void concurrentBatchesNeverOverfillWorks() throws Exception {
+        acceptConcurrently(12, 3l);
+    }
+
+    @Test
+    void contendedBatchAcceptBenchmark() throws Exception {
+        for (int volunteers : new int[] { 8, 32, 64 }) {
+            long elapsed = acceptConcurrently(volunteers, volunteers / 4l);
+            logger.info("Accepted {} contended batches in {} ms", volunteers, elapsed);
+        }
+    }
+
+    /**
+     * Postulates some volunteers to two works with fewer slots, and accepts the
+     * postulations of every volunteer as a batch of its own, all of them at
+     * once. Half of the batches list the works in reverse order, so batches
+     * locking the works in batch order would deadlock.
+     * 
+     * @return Milliseconds taken by the batches
+     */
+    private long acceptConcurrently(int volunteers, long slots) throws Exception {
+        UserEntity supplier = data.supplier();
+        WorkEntity first = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), slots,
+                TestData.block(1, 8));
+        WorkEntity second = data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), slots,
+                TestData.block(2, 8));
+
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < volunteers; i++) {
+            UserEntity volunteer = data.volunteer();
+            Long firstPostulation = postulate(volunteer, supplier, first);
+            Long secondPostulation = postulate(volunteer, supplier, second);
+            batches.add(i % 2 == 0 ? List.of(firstPostulation, secondPostulation)
+                    : List.of(secondPostulation, firstPostulation));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(volunteers);
+        List<Future<List<BatchItemResultDTO>>> results = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        try {
+            List<Callable<List<BatchItemResultDTO>>> tasks = new ArrayList<>();
+            for (List<Long> batch : batches)
+                tasks.add(() -> supplierPostulations.acceptUserPostulationsBatch(supplier, batch));
+
+            results.addAll(executor.invokeAll(tasks));
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        long acceptedItems = 0;
+        for (Future<List<BatchItemResultDTO>> result : results)
+            for (BatchItemResultDTO item : result.get())
+                if (PostulationStatusEnum.ACCEPTED.name().equals(item.getStatus()))
+                    acceptedItems++;
+
+        long filledSlots = 0;
+        for (WorkEntity work : List.of(first, second)) {
+            WorkEntity stored = works.findById(work.getWorkId()).get();
+            long accepted = postulations.findByWorkAndStatus(stored, PostulationStatusEnum.ACCEPTED).size();
+
+            assertTrue(stored.getFilledSlots() <= stored.getVolunteersNeeded());
+            assertEquals(stored.getFilledSlots(), accepted);
+            assertEquals(stored.getFilledSlots(), workInstances.countByWorkId(stored));
+            assertEquals(stored.getAcceptedPostulations(), accepted);
+            filledSlots += stored.getFilledSlots();
+        }
+
+        assertEquals(filledSlots, acceptedItems);
+        assertEquals(2 * slots, filledSlots);
+        return elapsed;
+    }
+
+    private Long postulate(UserEntity volunteer, UserEntity supplier, WorkEntity work) {
+        volunteerPostulations.postulateUser(volunteer, new CreatePostulationDTO(work.getStartDate(),
+                work.getEndDate(), work.getName(), supplier.getUserName()));
+
+        return postulations.findByVolunteerAndWorkId(volunteer, work.getWorkId()).getPostulationId();
+    }
+}
@@ -0,0 +1,176 @@
+package com.chiguirongos.backend.services.supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.WorkHourBlockDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.CreateWorkDTO;
+import com.chiguirongos.backend.dtos.requestsDTO.EditWorkDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.utils.WeekDayEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.WorkRepository;
+
+class SupplierWorkServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth IMPORT_MONTH = YearMonth.of(2092, 2);
+
+    private static final String CSV_HEADER = "name,description,type,tags,startDate,endDate,volunteersNeeded,hourBlocks\n";
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private SupplierWorkService supplierWorks;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void importAcceptsSessionBlocksWithoutWeekDay() {
+        UserEntity supplier = data.supplier();
+        CreateWorkDTO session = row(ModelsConstants.WORK_TYPE_SESSION,
+                TestData.block(WeekDayEnum.NONE.getValue(), 9));
+        CreateWorkDTO recurring = row(ModelsConstants.WORK_TYPE_RECURRING,
+                TestData.block(WeekDayEnum.NONE.getValue(), 9));
+
+        List<BatchItemResultDTO> results = supplierWorks.importSupplierWorks(supplier, List.of(session, recurring));
+
+        assertTrue(results.get(0).getSuccess());
+        assertNotNull(works.findByNameAndSupplierId(session.getName(), supplier));
+        assertFalse(results.get(1).getSuccess());
+        assertEquals("Invalid hour block", results.get(1).getMessage());
+        assertNull(works.findByNameAndSupplierId(recurring.getName(), supplier));
+    }
+
+    @Test
+    void importAcceptsUpToTheRowLimit() {
+        UserEntity supplier = data.supplier();
+        List<CreateWorkDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            rows.add(row(ModelsConstants.WORK_TYPE_RECURRING, TestData.block(i % 7, 8 + i % 10)));
+
+        List<BatchItemResultDTO> results = supplierWorks.importSupplierWorks(supplier, rows);
+
+        assertEquals(1000, results.size());
+        assertTrue(results.stream().allMatch((r) -> r.getSuccess()));
+        assertEquals(1000, works.findIdsBySupplierId(supplier).size());
+    }
+
+    @Test
+    void importRejectsRowsOverTheLimit() {
+        UserEntity supplier = data.supplier();
+        List<CreateWorkDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 1001; i++)
+            rows.add(row(ModelsConstants.WORK_TYPE_RECURRING, TestData.block(1, 8)));
+
+        assertThrows(IllegalArgumentException.class, () -> supplierWorks.importSupplierWorks(supplier, rows));
+        assertTrue(works.findIdsBySupplierId(supplier).isEmpty());
+    }
+
+    @Test
+    void csvRowsThatCantBeReadFailOnTheirOwn() {
+        UserEntity supplier = data.supplier();
+        String validName = TestData.uniqueName("w");
+        String csv = CSV_HEADER
+                + validName + ",\"Work, with a comma\",RECURRING,test;csv,01-02-2092,28-02-2092,2,1@08:00;3@08:00\n"
+                + TestData.uniqueName("w") + ",Bad date,RECURRING,test,2092-02-01,28-02-2092,2,1@08:00\n"
+                + TestData.uniqueName("w") + ",Missing columns,RECURRING,test\n"
+                + TestData.uniqueName("w") + ",Bad block,RECURRING,test,01-02-2092,28-02-2092,2,monday\n";
+
+        List<BatchItemResultDTO> results = supplierWorks.importSupplierWorksCsv(supplier, csv);
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).getSuccess());
+        assertEquals("Work, with a comma",
+                works.findByNameAndSupplierId(validName, supplier).getDescription());
+        for (BatchItemResultDTO result : results.subList(1, 4)) {
+            assertFalse(result.getSuccess());
+            assertTrue(result.getMessage().startsWith("Malformed row"));
+        }
+        assertEquals(1, works.findIdsBySupplierId(supplier).size());
+    }
+
+    @Test
+    void csvWithWrongHeaderIsRejected() {
+        UserEntity supplier = data.supplier();
+        String csv = "name,type\n" + TestData.uniqueName("w") + ",RECURRING\n";
+
+        assertThrows(IllegalArgumentException.class, () -> supplierWorks.importSupplierWorksCsv(supplier, csv));
+        assertThrows(IllegalArgumentException.class, () -> supplierWorks.importSupplierWorksCsv(supplier, ""));
+    }
+
+    @Test
+    void importRollsBackWhenAWorkCantBeStored() {
+        UserEntity supplier = data.supplier();
+        List<CreateWorkDTO> rows = new ArrayList<>();
+        rows.add(row(ModelsConstants.WORK_TYPE_RECURRING, TestData.block(1, 8)));
+        rows.add(row(ModelsConstants.WORK_TYPE_RECURRING, TestData.block(2, 8)));
+
+        // Passes the import validation but doesn't fit the description column
+        CreateWorkDTO tooLong = row(ModelsConstants.WORK_TYPE_RECURRING, TestData.block(3, 8));
+        tooLong.setDescription("d".repeat(1000));
+        rows.add(tooLong);
+
+        assertThrows(RuntimeException.class, () -> supplierWorks.importSupplierWorks(supplier, rows));
+        assertTrue(works.findIdsBySupplierId(supplier).isEmpty());
+    }
+
+    @Test
+    void editOnlyReplacesChangedBlocks() {
+        UserEntity supplier = data.supplier();
+        WorkEntity work = data.work(supplier, IMPORT_MONTH.atDay(1), IMPORT_MONTH.atEndOfMonth(), 2l,
+                TestData.block(1, 8), TestData.block(3, 8));
+        Map<String, Long> before = blockIds(work);
+
+        supplierWorks.editSupplierWork(supplier, new EditWorkDTO(work.getName(), null, "Edited work",
+                ModelsConstants.WORK_TYPE_RECURRING, new ArrayList<>(List.of("test")), work.getStartDate(),
+                work.getEndDate(), 2l, new WorkHourBlockDTO[] { TestData.block(1, 8), TestData.block(5, 9) }));
+
+        Map<String, Long> after = blockIds(work);
+        assertEquals(2, after.size());
+        assertEquals(before.get("1@08:00"), after.get("1@08:00"));
+        assertFalse(after.containsKey("3@08:00"));
+        assertFalse(before.containsValue(after.get("5@09:00")));
+        assertEquals("Edited work", works.findById(work.getWorkId()).get().getDescription());
+    }
+
+    /**
+     * Reads the stored hour block rows of a work
+     * 
+     * @return Id of every block row, by week day and hour
+     */
+    private Map<String, Long> blockIds(WorkEntity work) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("select id, week_day, hour_block from work_hour_blocks where work_id = ?",
+                (rs) -> {
+                    ids.put(rs.getInt("week_day") + "@" + rs.getTime("hour_block").toLocalTime(), rs.getLong("id"));
+                }, work.getWorkId());
+
+        return ids;
+    }
+
+    private CreateWorkDTO row(String type, WorkHourBlockDTO... blocks) {
+        return new CreateWorkDTO(TestData.uniqueName("w"), "Imported work", type, new ArrayList<>(List.of("test")),
+                IMPORT_MONTH.atDay(1), IMPORT_MONTH.atEndOfMonth(), 2l, blocks);
+    }
+}
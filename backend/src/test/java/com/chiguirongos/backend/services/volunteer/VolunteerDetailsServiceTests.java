@@ -0,0 +1,81 @@
+package com.chiguirongos.backend.services.volunteer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.EditPreferencesDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.UserHourBlockDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.repositories.UserRepository;
+
+class VolunteerDetailsServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private VolunteerDetailsService volunteerDetails;
+    @Autowired
+    private UserRepository users;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void editOnlyReplacesChangedPreferences() {
+        UserEntity volunteer = data.volunteer();
+        editPreferences(volunteer, List.of("test", "old"), block(1, 8), block(3, 8));
+        Map<String, Long> before = blockIds(volunteer);
+
+        editPreferences(volunteer, List.of("test", "new"), block(1, 8), block(5, 9));
+
+        Map<String, Long> after = blockIds(volunteer);
+        assertEquals(2, after.size());
+        assertEquals(before.get("1@08:00"), after.get("1@08:00"));
+        assertFalse(after.containsKey("3@08:00"));
+        assertFalse(before.containsValue(after.get("5@09:00")));
+        assertEquals(List.of("new", "test"), jdbcTemplate.queryForList("""
+                select t.name
+                from user_tags ut
+                join tag_entity t on t.tag_id = ut.tag_id
+                    where ut.user_id = ?
+                order by t.name
+                """, String.class, volunteer.getUserId()));
+    }
+
+    private void editPreferences(UserEntity volunteer, List<String> tags, UserHourBlockDTO... blocks) {
+        transaction.executeWithoutResult((status) -> volunteerDetails.editUserPreferences(
+                users.findByUserName(volunteer.getUserName()), new EditPreferencesDTO(tags, List.of(blocks))));
+    }
+
+    /**
+     * Reads the stored hour block rows of a volunteer
+     * 
+     * @return Id of every block row, by week day and hour
+     */
+    private Map<String, Long> blockIds(UserEntity volunteer) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("select id, week_day, hour_block from user_hour_blocks where user_id = ?",
+                (rs) -> {
+                    ids.put(rs.getInt("week_day") + "@" + rs.getTime("hour_block").toLocalTime(), rs.getLong("id"));
+                }, volunteer.getUserId());
+
+        return ids;
+    }
+
+    private static UserHourBlockDTO block(int weekDay, int hour) {
+        return new UserHourBlockDTO(LocalTime.of(hour, 0), weekDay);
+    }
+}
@@ -0,0 +1,131 @@
+package com.chiguirongos.backend.services.volunteer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.requestsDTO.CreatePostulationDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.BatchItemResultDTO;
+import com.chiguirongos.backend.models.postulations.PostulationEntity;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.PostulationStatusEnum;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.PostulationRepository;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.supplier.SupplierPostulationService;
+
+class VolunteerPostulationServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth WORK_MONTH = YearMonth.of(2092, 5);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private VolunteerPostulationService volunteerPostulations;
+    @Autowired
+    private SupplierPostulationService supplierPostulations;
+    @Autowired
+    private PostulationRepository postulations;
+    @Autowired
+    private WorkRepository works;
+
+    @Test
+    void validBatchIsStoredTogether() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity monday = work(supplier, 1, 8);
+        WorkEntity tuesday = work(supplier, 2, 9);
+
+        List<BatchItemResultDTO> results = volunteerPostulations.postulateUserBatch(volunteer,
+                List.of(postulation(supplier, monday), postulation(supplier, tuesday)));
+
+        assertTrue(results.stream().allMatch((r) -> r.getSuccess()));
+        for (WorkEntity work : List.of(monday, tuesday)) {
+            assertEquals(PostulationStatusEnum.PENDING,
+                    postulations.findByVolunteerAndWorkId(volunteer, work.getWorkId()).getStatus());
+            assertEquals(1l, works.findById(work.getWorkId()).get().getPendingPostulations());
+        }
+    }
+
+    @Test
+    void batchWithInternalConflictIsRejectedAsAWhole() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity first = work(supplier, 1, 8);
+        WorkEntity other = work(supplier, 2, 9);
+        WorkEntity conflicting = work(supplier, 1, 8);
+
+        List<BatchItemResultDTO> results = volunteerPostulations.postulateUserBatch(volunteer,
+                List.of(postulation(supplier, first), postulation(supplier, other),
+                        postulation(supplier, conflicting)));
+
+        assertTrue(results.stream().noneMatch((r) -> r.getSuccess()));
+        assertEquals("Another postulation of the batch shares an hour block with this one",
+                results.get(2).getMessage());
+        for (WorkEntity work : List.of(first, other, conflicting)) {
+            assertNull(postulations.findByVolunteerAndWorkId(volunteer, work.getWorkId()));
+            assertEquals(0l, works.findById(work.getWorkId()).get().getPendingPostulations());
+        }
+    }
+
+    @Test
+    void rejectedBatchLeavesReusedPostulationsUntouched() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity rejected = work(supplier, 3, 10);
+        WorkEntity conflicting = work(supplier, 3, 10);
+
+        volunteerPostulations.postulateUser(volunteer, postulation(supplier, rejected));
+        Long rejectedId = postulations.findByVolunteerAndWorkId(volunteer, rejected.getWorkId()).getPostulationId();
+        supplierPostulations.rejectUserPostulation(supplier, rejectedId);
+
+        List<BatchItemResultDTO> results = volunteerPostulations.postulateUserBatch(volunteer,
+                List.of(postulation(supplier, rejected), postulation(supplier, conflicting)));
+
+        assertTrue(results.stream().noneMatch((r) -> r.getSuccess()));
+        PostulationEntity stored = postulations.findById(rejectedId).get();
+        assertEquals(PostulationStatusEnum.REJECTED, stored.getStatus());
+        assertNull(postulations.findByVolunteerAndWorkId(volunteer, conflicting.getWorkId()));
+    }
+
+    @Test
+    void scheduleConflictOnlyFailsItsPostulation() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        WorkEntity scheduled = work(supplier, 4, 11);
+        WorkEntity conflicting = work(supplier, 4, 11);
+        WorkEntity free = work(supplier, 5, 11);
+
+        volunteerPostulations.postulateUser(volunteer, postulation(supplier, scheduled));
+
+        List<BatchItemResultDTO> results = volunteerPostulations.postulateUserBatch(volunteer,
+                List.of(postulation(supplier, conflicting), postulation(supplier, free)));
+
+        assertFalse(results.get(0).getSuccess());
+        assertEquals("You can't postulate in an hour block which you already have a postulation",
+                results.get(0).getMessage());
+        assertTrue(results.get(1).getSuccess());
+        assertEquals(PostulationStatusEnum.PENDING,
+                postulations.findByVolunteerAndWorkId(volunteer, free.getWorkId()).getStatus());
+    }
+
+    private WorkEntity work(UserEntity supplier, int weekDay, int hour) {
+        return data.work(supplier, WORK_MONTH.atDay(1), WORK_MONTH.atEndOfMonth(), 2l,
+                TestData.block(weekDay, hour));
+    }
+
+    private static CreatePostulationDTO postulation(UserEntity supplier, WorkEntity work) {
+        return new CreatePostulationDTO(work.getStartDate(), work.getEndDate(), work.getName(),
+                supplier.getUserName());
+    }
+}
@@ -0,0 +1,171 @@
+package com.chiguirongos.backend.services.volunteer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chiguirongos.backend.PostgresIntegrationTest;
+import com.chiguirongos.backend.TestData;
+import com.chiguirongos.backend.dtos.responsesDTO.WorkDTO;
+import com.chiguirongos.backend.dtos.responsesDTO.WorkPageDTO;
+import com.chiguirongos.backend.models.users.UserEntity;
+import com.chiguirongos.backend.models.utils.ModelsConstants;
+import com.chiguirongos.backend.models.works.WorkEntity;
+import com.chiguirongos.backend.repositories.WorkRepository;
+import com.chiguirongos.backend.services.cache.MonthWorksCache;
+
+import jakarta.persistence.EntityManagerFactory;
+
+class VolunteerWorkServiceTests extends PostgresIntegrationTest {
+
+    // Month no other test creates works in
+    private static final YearMonth FEED_MONTH = YearMonth.of(2091, 3);
+
+    @Autowired
+    private TestData data;
+    @Autowired
+    private VolunteerWorkService volunteerWorks;
+    @Autowired
+    private WorkRepository works;
+    @Autowired
+    private MonthWorksCache monthWorks;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    void calendarQueryStatementsDontGrowWithWorks() {
+        UserEntity supplier = data.supplier();
+        YearMonth month = FEED_MONTH.plusMonths(1);
+
+        createWorks(supplier, month, 3);
+        long fewWorksStatements = fewestStatements(() -> countCalendarStatements(month, 3));
+
+        createWorks(supplier, month, 30);
+        long manyWorksStatements = fewestStatements(() -> countCalendarStatements(month, 33));
+
+        assertEquals(fewWorksStatements, manyWorksStatements);
+    }
+
+    @Test
+    void monthFeedStatementsDontGrowWithWorks() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+
+        createWorks(supplier, FEED_MONTH, 3);
+        long fewWorksStatements = fewestStatements(() -> countFeedStatements(volunteer, FEED_MONTH, 3));
+
+        createWorks(supplier, FEED_MONTH, 30);
+        long manyWorksStatements = fewestStatements(() -> countFeedStatements(volunteer, FEED_MONTH, 33));
+
+        assertEquals(fewWorksStatements, manyWorksStatements);
+    }
+
+    @Test
+    void feedPagesCoverTheWholeMonthOnce() {
+        UserEntity supplier = data.supplier();
+        UserEntity volunteer = data.volunteer();
+        YearMonth month = FEED_MONTH.plusMonths(2);
+
+        Set<Long> monthWorkIds = new HashSet<>();
+        for (int i = 0; i < 17; i++)
+            monthWorkIds.add(data.work(supplier, month.atDay(1), month.atEndOfMonth(), 2l,
+                    TestData.block(i % 7, 8 + i % 10)).getWorkId());
+
+        // The month gets cached, then a work is stored without invalidating it
+        monthWorks.getMonthWorks(month);
+        WorkEntity uncached = new WorkEntity(TestData.uniqueName("w"), "Uncached work",
+                ModelsConstants.WORK_TYPE_RECURRING, supplier, month.atDay(1), month.atEndOfMonth(), 2l,
+                new HashSet<>(), new HashSet<>());
+        monthWorkIds.add(works.save(uncached).getWorkId());
+
+        List<Long> pagedWorkIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            WorkPageDTO page = volunteerWorks.getVolunteerPreferredWorksPage(volunteer, new ArrayList<>(),
+                    month.getMonthValue(), month.getYear(), cursor, 4);
+            assertTrue(page.getWorks().size() <= 4);
+            page.getWorks().forEach((w) -> pagedWorkIds.add(w.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(monthWorkIds.size(), pagedWorkIds.size());
+        assertEquals(monthWorkIds, new HashSet<>(pagedWorkIds));
+    }
+
+    /**
+     * Loads the works of a month through the calendar fetch plan, reading
+     * everything a calendar view shows of them
+     * 
+     * @return Number of statements sent to the database
+     */
+    private long countCalendarStatements(YearMonth month, int expectedWorks) {
+        Statistics statistics = statistics();
+        transaction.executeWithoutResult((status) -> {
+            statistics.clear();
+            int readWorks = 0;
+            for (WorkEntity work : works.findWorksBetweenDates(month.atDay(1), month.atEndOfMonth())) {
+                work.getWorkHourBlocks().forEach((hb) -> hb.getHourBlock());
+                work.getWorkTags().forEach((t) -> t.getName());
+                work.getSupplierId().getName();
+                readWorks++;
+            }
+
+            assertEquals(expectedWorks, readWorks);
+        });
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Builds the monthly feed of a volunteer with the month cache empty
+     * 
+     * @return Number of statements sent to the database
+     */
+    private long countFeedStatements(UserEntity volunteer, YearMonth month, int expectedWorks) {
+        monthWorks.invalidateAll();
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        List<WorkDTO> feed = volunteerWorks.getVolunteersWorksInMonthYear(volunteer, month.getMonthValue(),
+                month.getYear());
+
+        assertEquals(expectedWorks, feed.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Statistics are shared with the scheduled jobs, which may run during a
+     * measure, so the lowest count of a few runs is taken
+     */
+    private long fewestStatements(LongSupplier measure) {
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++)
+            fewest = Math.min(fewest, measure.getAsLong());
+
+        return fewest;
+    }
+
+    private void createWorks(UserEntity supplier, YearMonth month, int count) {
+        for (int i = 0; i < count; i++)
+            data.work(supplier, month.atDay(1), month.atEndOfMonth(), 2l, TestData.block(1, 8 + i % 10),
+                    TestData.block(3, 8 + i % 10));
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}